@@ -0,0 +1,85 @@
+package net.ltgt.promises.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.ltgt.promises.FulfillablePromise;
+import net.ltgt.promises.Promise.DoneCallback;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many threads registering callbacks on the same pending promise, which is regularly settled
+ * and replaced with a new one (so that handlers don't pile up indefinitely).
+ * <p>
+ * {@link #synchronizedBaseline} measures the same workload against the synchronized
+ * implementation {@link FulfillablePromise} used to have.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ContentionBenchmark {
+
+  /** Number of callbacks registered by a thread before it settles the current promise. */
+  private static final int SETTLE_EVERY = 1024;
+
+  private static final DoneCallback<Object> NOOP = new DoneCallback<Object>() {
+    @Override
+    public void onFulfilled(Object value) {
+      // no-op
+    }
+  };
+
+  @State(Scope.Benchmark)
+  public static class LockFree {
+    final AtomicReference<FulfillablePromise<Object>> current =
+        new AtomicReference<>(FulfillablePromise.<Object>create());
+  }
+
+  @State(Scope.Benchmark)
+  public static class Synchronized {
+    final AtomicReference<SynchronizedPromise<Object>> current =
+        new AtomicReference<>(new SynchronizedPromise<Object>());
+  }
+
+  @State(Scope.Thread)
+  public static class Counter {
+    int count;
+
+    boolean shouldSettle() {
+      return ++count % SETTLE_EVERY == 0;
+    }
+  }
+
+  @Benchmark
+  public void lockFree(LockFree state, Counter counter) {
+    FulfillablePromise<Object> promise = state.current.get();
+    promise.done(NOOP);
+    if (counter.shouldSettle()
+        && state.current.compareAndSet(promise, FulfillablePromise.<Object>create())) {
+      promise.fulfill(null);
+    }
+  }
+
+  @Benchmark
+  public void synchronizedBaseline(Synchronized state, Counter counter) {
+    SynchronizedPromise<Object> promise = state.current.get();
+    promise.done(NOOP);
+    if (counter.shouldSettle()
+        && state.current.compareAndSet(promise, new SynchronizedPromise<Object>())) {
+      promise.fulfill(null);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package net.ltgt.promises.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.ltgt.promises.FulfillablePromise;
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.Promise.Callback;
+import net.ltgt.promises.Promises;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a long {@code then()} chain on a pending promise, then settling its head, which
+ * runs the whole chain.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeepChainBenchmark {
+
+  private static final Callback<Integer, Integer> INCREMENT = new Callback<Integer, Integer>() {
+    @Override
+    public Promise<Integer> onFulfilled(Integer value) {
+      return Promises.fulfilled(value + 1);
+    }
+  };
+
+  @Param({ "100", "10000", "100000" })
+  int depth;
+
+  @Benchmark
+  public Promise<Integer> chain() {
+    FulfillablePromise<Integer> head = FulfillablePromise.create();
+    Promise<Integer> tail = head;
+    for (int i = 0; i < depth; i++) {
+      tail = tail.then(INCREMENT);
+    }
+    head.fulfill(0);
+    return tail;
+  }
+}
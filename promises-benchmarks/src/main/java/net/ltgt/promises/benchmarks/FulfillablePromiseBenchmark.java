@@ -0,0 +1,87 @@
+package net.ltgt.promises.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.ltgt.promises.FulfillablePromise;
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.Promise.Callback;
+import net.ltgt.promises.Promise.ImmediateCallback;
+import net.ltgt.promises.Promises;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Creating, settling and chaining a {@link FulfillablePromise}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FulfillablePromiseBenchmark {
+
+  static final ImmediateCallback<Object, Object> IDENTITY = new ImmediateCallback<Object, Object>() {
+    @Override
+    public Object onFulfilled(Object value) {
+      return value;
+    }
+  };
+
+  static final Callback<Object, Object> CHAIN = new Callback<Object, Object>() {
+    @Override
+    public Promise<Object> onFulfilled(Object value) {
+      return Promises.fulfilled(value);
+    }
+  };
+
+  private final Object value = new Object();
+
+  @Benchmark
+  public FulfillablePromise<Object> create() {
+    return FulfillablePromise.create();
+  }
+
+  @Benchmark
+  public FulfillablePromise<Object> createFulfill() {
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    promise.fulfill(value);
+    return promise;
+  }
+
+  @Benchmark
+  public Promise<Object> thenImmediateOnPending() {
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    Promise<Object> result = promise.then(IDENTITY);
+    promise.fulfill(value);
+    return result;
+  }
+
+  @Benchmark
+  public Promise<Object> thenImmediateOnFulfilled() {
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    promise.fulfill(value);
+    return promise.then(IDENTITY);
+  }
+
+  @Benchmark
+  public Promise<Object> thenOnPending() {
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    Promise<Object> result = promise.then(CHAIN);
+    promise.fulfill(value);
+    return result;
+  }
+
+  @Benchmark
+  public Promise<Object> thenOnFulfilled() {
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    promise.fulfill(value);
+    return promise.then(CHAIN);
+  }
+}
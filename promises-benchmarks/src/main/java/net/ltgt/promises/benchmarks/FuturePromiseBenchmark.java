@@ -0,0 +1,145 @@
+package net.ltgt.promises.benchmarks;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static net.ltgt.promises.benchmarks.FulfillablePromiseBenchmark.CHAIN;
+import static net.ltgt.promises.benchmarks.FulfillablePromiseBenchmark.IDENTITY;
+
+import java.util.concurrent.TimeUnit;
+
+import net.ltgt.promises.FulfillablePromise;
+import net.ltgt.promises.FuturePromise;
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.Promise.Callback;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/** Overhead of the {@link FuturePromise} bridge compared to raw Guava futures. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FuturePromiseBenchmark {
+
+  private static final Function<Object, Object> GUAVA_IDENTITY = new Function<Object, Object>() {
+    @Override
+    public Object apply(Object input) {
+      return input;
+    }
+  };
+
+  private static final AsyncFunction<Object, Object> GUAVA_CHAIN =
+      new AsyncFunction<Object, Object>() {
+        @Override
+        public ListenableFuture<Object> apply(Object input) {
+          return Futures.immediateFuture(input);
+        }
+      };
+
+  /** Same as {@link FulfillablePromiseBenchmark#CHAIN} but returning a {@link FuturePromise}. */
+  private static final Callback<Object, Object> FUTURE_CHAIN = new Callback<Object, Object>() {
+    @Override
+    public Promise<Object> onFulfilled(Object value) {
+      return FuturePromise.create(Futures.immediateFuture(value));
+    }
+  };
+
+  private static final int CHAIN_LENGTH = 10;
+
+  private final Object value = new Object();
+
+  @Benchmark
+  public ListenableFuture<Object> guavaTransform() {
+    SettableFuture<Object> future = SettableFuture.create();
+    ListenableFuture<Object> result = Futures.transform(future, GUAVA_IDENTITY, directExecutor());
+    future.set(value);
+    return result;
+  }
+
+  @Benchmark
+  public ListenableFuture<Object> futurePromiseThenImmediate() {
+    SettableFuture<Object> future = SettableFuture.create();
+    FuturePromise<Object> result = FuturePromise.create(future).then(IDENTITY);
+    future.set(value);
+    return result;
+  }
+
+  @Benchmark
+  public ListenableFuture<Object> guavaTransformAsync() {
+    SettableFuture<Object> future = SettableFuture.create();
+    ListenableFuture<Object> result = Futures.transformAsync(future, GUAVA_CHAIN, directExecutor());
+    future.set(value);
+    return result;
+  }
+
+  /** The callback returns a non-{@link FuturePromise}, that has to be adapted. */
+  @Benchmark
+  public ListenableFuture<Object> futurePromiseThen() {
+    SettableFuture<Object> future = SettableFuture.create();
+    FuturePromise<Object> result = FuturePromise.create(future).then(CHAIN);
+    future.set(value);
+    return result;
+  }
+
+  /** The callback returns a {@link FuturePromise}, whose future is used directly. */
+  @Benchmark
+  public ListenableFuture<Object> futurePromiseThenFuture() {
+    SettableFuture<Object> future = SettableFuture.create();
+    FuturePromise<Object> result = FuturePromise.create(future).then(FUTURE_CHAIN);
+    future.set(value);
+    return result;
+  }
+
+  @Benchmark
+  public ListenableFuture<Object> adaptFulfillablePromise() {
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    ListenableFuture<Object> result = FuturePromise.adapt(promise);
+    promise.fulfill(value);
+    return result;
+  }
+
+  @Benchmark
+  public Promise<Object> adaptFuturePromise() {
+    SettableFuture<Object> future = SettableFuture.create();
+    FuturePromise<Object> promise = FuturePromise.create(future);
+    future.set(value);
+    return FuturePromise.create(FuturePromise.adapt(promise));
+  }
+
+  @Benchmark
+  public ListenableFuture<Object> guavaTransformAsyncChain() {
+    SettableFuture<Object> future = SettableFuture.create();
+    ListenableFuture<Object> result = future;
+    for (int i = 0; i < CHAIN_LENGTH; i++) {
+      result = Futures.transformAsync(result, GUAVA_CHAIN, directExecutor());
+    }
+    future.set(value);
+    return result;
+  }
+
+  @Benchmark
+  public ListenableFuture<Object> futurePromiseThenChain() {
+    SettableFuture<Object> future = SettableFuture.create();
+    FuturePromise<Object> result = FuturePromise.create(future);
+    for (int i = 0; i < CHAIN_LENGTH; i++) {
+      result = result.then(FUTURE_CHAIN);
+    }
+    future.set(value);
+    return result;
+  }
+}
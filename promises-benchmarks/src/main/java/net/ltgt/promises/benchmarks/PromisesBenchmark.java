@@ -0,0 +1,93 @@
+package net.ltgt.promises.benchmarks;
+
+import static net.ltgt.promises.benchmarks.FulfillablePromiseBenchmark.CHAIN;
+import static net.ltgt.promises.benchmarks.FulfillablePromiseBenchmark.IDENTITY;
+
+import java.util.concurrent.TimeUnit;
+
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.Promise.ImmediateCallback;
+import net.ltgt.promises.Promises;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Promises#fulfilled} and {@link Promises#rejected} promises and chains.
+ * <p>
+ * Run with {@code -prof gc} to compare allocations of shared (e.g. {@code null} or small
+ * integers) and non-shared values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromisesBenchmark {
+
+  private static final ImmediateCallback<Object, Object> RECOVER =
+      new ImmediateCallback<Object, Object>() {
+        @Override
+        public Object onFulfilled(Object value) {
+          return value;
+        }
+
+        @Override
+        public Object onRejected(Throwable reason) {
+          return reason;
+        }
+      };
+
+  private final Object value = new Object();
+  private final Throwable reason = new Exception("benchmark");
+  private int smallInteger = 42;
+  private Integer largeInteger = 100000;
+
+  @Benchmark
+  public Promise<Object> fulfilledNull() {
+    return Promises.fulfilled(null);
+  }
+
+  @Benchmark
+  public Promise<Integer> fulfilledSmallInteger() {
+    return Promises.fulfilled(smallInteger);
+  }
+
+  @Benchmark
+  public Promise<Integer> fulfilledLargeInteger() {
+    return Promises.fulfilled(largeInteger);
+  }
+
+  @Benchmark
+  public Promise<Object> fulfilledObject() {
+    return Promises.fulfilled(value);
+  }
+
+  @Benchmark
+  public Promise<Object> rejected() {
+    return Promises.rejected(reason);
+  }
+
+  @Benchmark
+  public Promise<Object> fulfilledChain() {
+    return Promises.fulfilled(value).then(IDENTITY).then(CHAIN).then(IDENTITY);
+  }
+
+  @Benchmark
+  public Promise<Object> fulfilledNullChain() {
+    return Promises.fulfilled(null).then(IDENTITY).then(CHAIN).then(IDENTITY);
+  }
+
+  @Benchmark
+  public Promise<Object> rejectedChain() {
+    return Promises.rejected(reason).then(IDENTITY).then(CHAIN).then(RECOVER);
+  }
+}
@@ -0,0 +1,55 @@
+package net.ltgt.promises.benchmarks;
+
+import net.ltgt.promises.Promise.DoneCallback;
+
+/**
+ * Baseline for {@link ContentionBenchmark}: the synchronized state machine that
+ * {@link net.ltgt.promises.FulfillablePromise} used before it was made lock-free, reduced to
+ * {@code done(DoneCallback)} and {@code fulfill}.
+ */
+final class SynchronizedPromise<V> {
+
+  private static abstract class Handler<V> {
+    Handler<V> next;
+
+    abstract void fulfill(V value);
+  }
+
+  private boolean fulfilled;
+  private V value;
+
+  private Handler<V> first;
+  private Handler<V> last;
+
+  synchronized void fulfill(V value) {
+    if (fulfilled) {
+      throw new IllegalStateException();
+    }
+
+    fulfilled = true;
+    this.value = value;
+
+    for (Handler<V> handler = first; handler != null; handler = handler.next) {
+      handler.fulfill(value);
+    }
+    first = last = null;
+  }
+
+  synchronized void done(final DoneCallback<? super V> callback) {
+    if (fulfilled) {
+      callback.onFulfilled(value);
+      return;
+    }
+    Handler<V> handler = new Handler<V>() {
+      @Override
+      void fulfill(V value) {
+        callback.onFulfilled(value);
+      }
+    };
+    if (last == null) {
+      first = last = handler;
+    } else {
+      last = last.next = handler;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package net.ltgt.promises.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.ltgt.promises.FulfillablePromise;
+import net.ltgt.promises.Promise.DoneCallback;
+import net.ltgt.promises.Promises;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many blocking callbacks registered on a promise with
+ * {@link Promises#virtualThreadExecutor()} compared to a pool of platform threads.
+ * <p>
+ * The {@code virtual} executor requires Java 21 or later.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+  @Param({ "virtual", "platform" })
+  String executor;
+
+  @Param({ "200" })
+  int platformThreads;
+
+  @Param({ "100000" })
+  int continuations;
+
+  @Param({ "1" })
+  long blockMillis;
+
+  private Executor callbackExecutor;
+  private ExecutorService pool;
+
+  @Setup
+  public void setUp() {
+    switch (executor) {
+    case "virtual":
+      callbackExecutor = Promises.virtualThreadExecutor();
+      break;
+    case "platform":
+      callbackExecutor = pool = Executors.newFixedThreadPool(platformThreads);
+      break;
+    default:
+      throw new IllegalArgumentException(executor);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (pool != null) {
+      pool.shutdownNow();
+    }
+  }
+
+  @Benchmark
+  public void blockingContinuations() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(continuations);
+    DoneCallback<Object> callback = new DoneCallback<Object>() {
+      @Override
+      public void onFulfilled(Object value) {
+        try {
+          Thread.sleep(blockMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        latch.countDown();
+      }
+    };
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    for (int i = 0; i < continuations; i++) {
+      promise.done(callback, callbackExecutor);
+    }
+    promise.fulfill(null);
+    latch.await();
+  }
+}
@@ -0,0 +1,63 @@
+package net.ltgt.promises.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.ltgt.promises.FulfillablePromise;
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.Promises;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** {@link Promises#wait} over already-settled and pending inputs. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WaitBenchmark {
+
+  @Param({ "10", "1000", "100000" })
+  int size;
+
+  private final Object value = new Object();
+  private List<Promise<Object>> fulfilled;
+
+  @Setup
+  public void setUp() {
+    fulfilled = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      fulfilled.add(Promises.fulfilled(value));
+    }
+  }
+
+  @Benchmark
+  public Promise<List<Object>> waitFulfilled() {
+    return Promises.wait(fulfilled);
+  }
+
+  @Benchmark
+  public Promise<List<Object>> waitPending() {
+    List<FulfillablePromise<Object>> pending = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      pending.add(FulfillablePromise.<Object>create());
+    }
+    Promise<List<Object>> result = Promises.wait(pending);
+    for (FulfillablePromise<Object> promise : pending) {
+      promise.fulfill(value);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,12 @@
+/**
+ * JMH benchmarks for the promises library.
+ * <p>
+ * Run them all with {@code mvn verify -Pjmh} from the root of the project; results are
+ * written as JSON to {@code promises-benchmarks/target/jmh-result.json} so they can be
+ * compared between releases. Pass extra arguments to JMH with {@code -Djmh.args="…"}, e.g.
+ * {@code -Djmh.args="-prof gc PromisesBenchmark"} to profile allocations.
+ */
+@ParametersAreNonnullByDefault
+package net.ltgt.promises.benchmarks;
+
+import javax.annotation.ParametersAreNonnullByDefault;
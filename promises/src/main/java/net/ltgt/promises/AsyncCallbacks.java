@@ -0,0 +1,173 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.Executor;
+
+import net.ltgt.promises.Promise.Callback;
+import net.ltgt.promises.Promise.DoneCallback;
+import net.ltgt.promises.Promise.ImmediateCallback;
+
+/**
+ * Adapts callbacks so they're run by an {@link Executor}.
+ * <p>
+ * Callbacks are run directly, without going through the executor again, when the promise is
+ * settled (or the callback registered on an already-settled promise) from a callback that is
+ * itself being run by the same executor.
+ */
+final class AsyncCallbacks {
+
+  private static final ThreadLocal<Executor> CURRENT = new ThreadLocal<>();
+
+  static boolean isCurrent(Executor executor) {
+    return CURRENT.get() == executor;
+  }
+
+  static void execute(final Executor executor, final Runnable task) {
+    if (isCurrent(executor)) {
+      task.run();
+      return;
+    }
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        Executor previous = CURRENT.get();
+        CURRENT.set(executor);
+        try {
+          task.run();
+        } finally {
+          if (previous == null) {
+            CURRENT.remove();
+          } else {
+            CURRENT.set(previous);
+          }
+        }
+      }
+    });
+  }
+
+  static <V, R> Callback<V, R> async(final Callback<? super V, R> callback,
+      final Executor executor) {
+    requireNonNull(callback);
+    requireNonNull(executor);
+    return new Callback<V, R>() {
+      @Override
+      public Promise<R> onFulfilled(final V value) {
+        if (isCurrent(executor)) {
+          return callback.onFulfilled(value);
+        }
+        // only a hop in the chain, whose call sites are recorded by the derived promise
+        final FulfillablePromise<R> promise = FulfillablePromise.create(false);
+        try {
+          execute(executor, new Runnable() {
+            @Override
+            public void run() {
+              Promise<R> result;
+              try {
+                result = requireNonNull(callback.onFulfilled(value));
+              } catch (Throwable t) {
+                result = Promises.rejected(t);
+              }
+              chain(result, promise);
+            }
+          });
+        } catch (Throwable t) {
+          promise.reject(t);
+        }
+        return promise;
+      }
+
+      @Override
+      public Promise<R> onRejected(final Throwable reason) {
+        if (isCurrent(executor)) {
+          return callback.onRejected(reason);
+        }
+        final FulfillablePromise<R> promise = FulfillablePromise.create(false);
+        try {
+          execute(executor, new Runnable() {
+            @Override
+            public void run() {
+              Promise<R> result;
+              try {
+                result = requireNonNull(callback.onRejected(reason));
+              } catch (Throwable t) {
+                result = Promises.rejected(t);
+              }
+              chain(result, promise);
+            }
+          });
+        } catch (Throwable t) {
+          promise.reject(t);
+        }
+        return promise;
+      }
+    };
+  }
+
+  static <V, R> Callback<V, R> async(final ImmediateCallback<? super V, R> callback,
+      Executor executor) {
+    requireNonNull(callback);
+    return async(new Callback<V, R>() {
+      @Override
+      public Promise<R> onFulfilled(V value) {
+        try {
+          return Promises.fulfilled(callback.onFulfilled(value));
+        } catch (Throwable t) {
+          return Promises.rejected(t);
+        }
+      }
+
+      @Override
+      public Promise<R> onRejected(Throwable reason) {
+        try {
+          return Promises.fulfilled(callback.onRejected(reason));
+        } catch (Throwable t) {
+          return Promises.rejected(t);
+        }
+      }
+    }, executor);
+  }
+
+  static <V> DoneCallback<V> async(final DoneCallback<? super V> callback,
+      final Executor executor) {
+    requireNonNull(callback);
+    requireNonNull(executor);
+    return new DoneCallback<V>() {
+      @Override
+      public void onFulfilled(final V value) {
+        execute(executor, new Runnable() {
+          @Override
+          public void run() {
+            callback.onFulfilled(value);
+          }
+        });
+      }
+
+      @Override
+      public void onRejected(final Throwable reason) {
+        execute(executor, new Runnable() {
+          @Override
+          public void run() {
+            callback.onRejected(reason);
+          }
+        });
+      }
+    };
+  }
+
+  static <R> void chain(Promise<R> promise, final FulfillablePromise<R> into) {
+    promise.done(new DoneCallback<R>() {
+      @Override
+      public void onFulfilled(R value) {
+        into.fulfill(value);
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        into.reject(reason);
+      }
+    });
+  }
+
+  private AsyncCallbacks() {}
+}
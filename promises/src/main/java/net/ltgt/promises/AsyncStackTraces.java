@@ -0,0 +1,155 @@
+package net.ltgt.promises;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+/**
+ * Records where callbacks are registered on {@link FulfillablePromise}s, and adds those call
+ * sites to the reasons promises are rejected with, so that a rejection can be traced back
+ * through the chain of promises it went through, rather than only to the thread that settled
+ * the first promise.
+ * <p>
+ * The call sites are added, innermost first, as the stack trace of an exception
+ * {@linkplain Throwable#addSuppressed suppressed} by the reason, whose message is
+ * {@value #MESSAGE}. Only the reasons that are passed down the chain as-is (as done by the
+ * default {@code onRejected} of callbacks) collect all the call sites. Reasons shared by
+ * several chains collect the call sites of all of them, up to {@value #MAX_FRAMES}.
+ * <p>
+ * Chains are sampled: a promise created by {@link FulfillablePromise#create()} is traced with a
+ * probability of one in {@link #getSamplingInterval() samplingInterval}, and promises derived
+ * from a traced promise are traced too. The sampling interval is initially read from the
+ * {@code net.ltgt.promises.asyncStackTraces.samplingInterval} system property, and defaults to
+ * {@code 0}, disabling tracing altogether.
+ */
+public final class AsyncStackTraces {
+
+  static final String MESSAGE = "Callbacks registered at:";
+  static final int MAX_FRAMES = 128;
+
+  private static final StackWalker WALKER = StackWalker.getInstance();
+
+  private static final String PACKAGE = AsyncStackTraces.class.getPackage().getName() + ".";
+
+  /**
+   * The classes of this package that register callbacks on behalf of their caller, by name so
+   * that classes depending on optional dependencies (e.g. {@code FuturePromise}) aren't loaded.
+   */
+  private static final Set<String> LIBRARY = new HashSet<>(Arrays.asList(
+      "AsyncCallbacks", "AsyncStackTraces", "BatchLoader", "CompletionStagePromise",
+      "DeadlinePromise", "DoublePromise", "ForwardingPromise", "FulfillablePromise",
+      "FuturePromise", "IndexedCallback", "IntPromise", "LongPromise", "PrimitivePromise",
+      "Promise", "PromiseCache", "PromisePublisher", "Promises", "Trampoline"));
+
+  private static final Predicate<StackWalker.StackFrame> INTERNAL =
+      new Predicate<StackWalker.StackFrame>() {
+        @Override
+        public boolean test(StackWalker.StackFrame frame) {
+          String className = frame.getClassName();
+          if (!className.startsWith(PACKAGE)) {
+            return false;
+          }
+          int end = className.indexOf('$', PACKAGE.length());
+          String name = className.substring(PACKAGE.length(), end < 0 ? className.length() : end);
+          return LIBRARY.contains(name);
+        }
+      };
+
+  private static final Function<Stream<StackWalker.StackFrame>, Optional<StackWalker.StackFrame>>
+      CALL_SITE =
+          new Function<Stream<StackWalker.StackFrame>, Optional<StackWalker.StackFrame>>() {
+            @Override
+            public Optional<StackWalker.StackFrame> apply(Stream<StackWalker.StackFrame> frames) {
+              return frames.dropWhile(INTERNAL).findFirst();
+            }
+          };
+
+  private static volatile int samplingInterval =
+      Math.max(0, Integer.getInteger("net.ltgt.promises.asyncStackTraces.samplingInterval", 0));
+
+  private AsyncStackTraces() {
+    // non-instantiable
+  }
+
+  public static int getSamplingInterval() {
+    return samplingInterval;
+  }
+
+  /**
+   * Sets the sampling interval: {@code 0} to disable tracing, {@code 1} to trace every chain
+   * of promises, {@code n} to trace about one chain in {@code n}.
+   *
+   * @throws IllegalArgumentException if {@code samplingInterval} is negative.
+   */
+  public static void setSamplingInterval(int samplingInterval) {
+    if (samplingInterval < 0) {
+      throw new IllegalArgumentException(
+          "samplingInterval must not be negative: " + samplingInterval);
+    }
+    AsyncStackTraces.samplingInterval = samplingInterval;
+  }
+
+  /** Returns whether the promise being created should be traced. */
+  static boolean sample() {
+    int interval = samplingInterval;
+    return interval != 0
+        && (interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0);
+  }
+
+  /** Returns the first frame of the current stack outside this library's internals. */
+  @Nullable
+  static StackTraceElement callSite() {
+    Optional<StackWalker.StackFrame> frame = WALKER.walk(CALL_SITE);
+    return frame.isPresent() ? frame.get().toStackTraceElement() : null;
+  }
+
+  /** Adds the given call site to the rejection reason. */
+  static void record(Throwable reason, @Nullable StackTraceElement callSite) {
+    if (callSite == null) {
+      return;
+    }
+    AsyncTrace trace = null;
+    for (Throwable suppressed : reason.getSuppressed()) {
+      if (suppressed instanceof AsyncTrace) {
+        trace = (AsyncTrace) suppressed;
+        break;
+      }
+    }
+    if (trace == null) {
+      trace = new AsyncTrace();
+      reason.addSuppressed(trace);
+    }
+    trace.add(callSite);
+  }
+
+  private static final class AsyncTrace extends Throwable {
+    private static final long serialVersionUID = 1L;
+
+    AsyncTrace() {
+      super(MESSAGE, null, false, true);
+      setStackTrace(new StackTraceElement[0]);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      // the stack trace is the call sites, don't waste time capturing the current one
+      return this;
+    }
+
+    synchronized void add(StackTraceElement callSite) {
+      StackTraceElement[] frames = getStackTrace();
+      if (frames.length < MAX_FRAMES) {
+        frames = Arrays.copyOf(frames, frames.length + 1);
+        frames[frames.length - 1] = callSite;
+        setStackTrace(frames);
+      }
+    }
+  }
+}
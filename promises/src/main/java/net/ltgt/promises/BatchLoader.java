@@ -0,0 +1,221 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import net.ltgt.promises.Promise.DoneCallback;
+
+/**
+ * Coalesces individual loads into bulk loads.
+ * <p>
+ * Keys passed to {@link #load(Object)} are collected into a batch, that is dispatched as a
+ * single call to the bulk function either once it reaches the maximum batch size, or when the
+ * task submitted to the executor when the batch was started runs; that is, with a
+ * single-threaded executor (e.g. an event loop), after the task currently running and those
+ * already queued, which generally makes up a "tick". Batches can also be dispatched explicitly
+ * with {@link #dispatch()}.
+ * <p>
+ * The same key requested several times in a batch is only passed once to the bulk function;
+ * each request gets its own promise though, so that cancelling one doesn't affect the others.
+ * Keys missing from the bulk result are rejected with a {@link NoSuchElementException}; if the
+ * bulk load is rejected, all the promises of the batch are rejected with the same reason.
+ * <p>
+ * Nothing is cached across batches.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public final class BatchLoader<K, V> {
+
+  /**
+   * @param bulk loads the values of the given keys, in a map that should contain an entry for
+   *        each key (possibly with a {@code null} value).
+   * @throws IllegalArgumentException if {@code maxBatchSize} is less than 1.
+   */
+  public static <K, V> BatchLoader<K, V> create(
+      Function<? super List<K>, ? extends Promise<? extends Map<K, ? extends V>>> bulk,
+      int maxBatchSize, Executor executor) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+    }
+    return new BatchLoader<>(requireNonNull(bulk), maxBatchSize, requireNonNull(executor));
+  }
+
+  private final Function<? super List<K>, ? extends Promise<? extends Map<K, ? extends V>>> bulk;
+  private final int maxBatchSize;
+  private final Executor executor;
+
+  /** Guarded by {@code this}. */
+  private Batch batch;
+
+  private BatchLoader(
+      Function<? super List<K>, ? extends Promise<? extends Map<K, ? extends V>>> bulk,
+      int maxBatchSize, Executor executor) {
+    this.bulk = bulk;
+    this.maxBatchSize = maxBatchSize;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns a promise of the value for the given key, that will be part of the next batch.
+   * <p>
+   * If the executor rejects the task dispatching a new batch, the batch is rejected with the
+   * same exception.
+   */
+  public Promise<V> load(K key) {
+    requireNonNull(key);
+    Batch started = null;
+    Batch full = null;
+    FulfillablePromise<V> promise;
+    synchronized (this) {
+      if (batch == null) {
+        batch = started = new Batch();
+      }
+      promise = batch.promises.get(key);
+      if (promise == null) {
+        promise = FulfillablePromise.create();
+        batch.promises.put(key, promise);
+        if (batch.promises.size() >= maxBatchSize) {
+          full = batch;
+          batch = null;
+        }
+      }
+    }
+    if (full != null) {
+      full.dispatch();
+    } else if (started != null) {
+      try {
+        executor.execute(started);
+      } catch (Throwable t) {
+        // reject the batch, unless it's been dispatched in the mean time
+        synchronized (this) {
+          if (batch != started) {
+            return request(promise);
+          }
+          batch = null;
+        }
+        started.onRejected(t);
+      }
+    }
+    return request(promise);
+  }
+
+  /**
+   * Returns a new promise settled the same way as the given one. Unlike a promise derived
+   * through {@link Promise#then then}, cancelling it never cancels the given promise, that
+   * other requests for the same key can still join.
+   */
+  private static <V> Promise<V> request(Promise<V> promise) {
+    FulfillablePromise<V> request = FulfillablePromise.create();
+    AsyncCallbacks.chain(promise, request);
+    return request;
+  }
+
+  /**
+   * Returns a promise of the values for the given keys, in the same order.
+   *
+   * @see Promises#wait(java.util.Collection)
+   */
+  public Promise<List<V>> loadAll(Iterable<? extends K> keys) {
+    List<Promise<V>> promises = new ArrayList<>();
+    for (K key : keys) {
+      promises.add(load(key));
+    }
+    return Promises.wait(promises);
+  }
+
+  /** Dispatches the current batch, if any, without waiting for it to be full. */
+  public void dispatch() {
+    Batch current;
+    synchronized (this) {
+      current = batch;
+      batch = null;
+    }
+    if (current != null) {
+      current.dispatch();
+    }
+  }
+
+  /**
+   * A batch of keys, and the promises of their values. The batch is run by the executor to
+   * dispatch it, unless it has already been dispatched.
+   */
+  private final class Batch extends DoneCallback<Map<K, ? extends V>> implements Runnable {
+    /** Only accessed under the loader's lock until dispatched, then by the dispatching thread. */
+    final LinkedHashMap<K, FulfillablePromise<V>> promises = new LinkedHashMap<>();
+
+    @Override
+    public void run() {
+      synchronized (BatchLoader.this) {
+        if (batch != this) {
+          return;
+        }
+        batch = null;
+      }
+      dispatch();
+    }
+
+    void dispatch() {
+      Promise<? extends Map<K, ? extends V>> result;
+      try {
+        result = requireNonNull(bulk.apply(new ArrayList<>(promises.keySet())));
+      } catch (Throwable t) {
+        onRejected(t);
+        return;
+      }
+      result.done(this);
+    }
+
+    @Override
+    public void onFulfilled(Map<K, ? extends V> values) {
+      if (values == null) {
+        onRejected(new NullPointerException("bulk load fulfilled with null"));
+        return;
+      }
+      Throwable failure = null;
+      for (Map.Entry<K, FulfillablePromise<V>> entry : promises.entrySet()) {
+        try {
+          V value = values.get(entry.getKey());
+          if (value != null || values.containsKey(entry.getKey())) {
+            entry.getValue().fulfill(value);
+          } else {
+            entry.getValue().reject(
+                new NoSuchElementException("No value for key " + entry.getKey()));
+          }
+        } catch (Throwable t) {
+          // keep settling the other keys
+          if (failure == null) {
+            failure = t;
+          }
+        }
+      }
+      if (failure != null) {
+        throw Promises.propagate(failure);
+      }
+    }
+
+    @Override
+    public void onRejected(Throwable reason) {
+      Throwable failure = null;
+      for (FulfillablePromise<V> promise : promises.values()) {
+        try {
+          promise.reject(reason);
+        } catch (Throwable t) {
+          if (failure == null) {
+            failure = t;
+          }
+        }
+      }
+      if (failure != null) {
+        throw Promises.propagate(failure);
+      }
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link Promise} around a {@link CompletionStage}.
+ * <p>
+ * Callbacks are mapped onto the stage's own continuations ({@code handle},
+ * {@code thenCompose} and {@code whenComplete}), and promises returned by callbacks that are
+ * themselves {@link CompletionStagePromise}s are composed without being wrapped again.
+ * Conversely, {@link #adapt(Promise)} unwraps the stage of a {@link CompletionStagePromise}.
+ * <p>
+ * As with any {@link CompletionStage}, exceptions thrown by a {@link DoneCallback} are not
+ * propagated to the code settling the stage.
+ *
+ * @param <V> {@inheritDoc}
+ */
+public class CompletionStagePromise<V> implements Promise<V> {
+
+  @SuppressWarnings("rawtypes")
+  private static final Function IDENTITY = new Function() {
+    @Override
+    public Object apply(Object t) {
+      return t;
+    }
+  };
+
+  public static <V> CompletionStagePromise<V> create(CompletionStage<V> stage) {
+    return new CompletionStagePromise<>(requireNonNull(stage));
+  }
+
+  /**
+   * Returns a {@link CompletionStage} settled the same way as the given promise.
+   * <p>
+   * The stage wrapped by a {@link CompletionStagePromise} is returned as-is.
+   */
+  @SuppressWarnings("unchecked")
+  public static <V> CompletionStage<V> adapt(Promise<V> promise) {
+    if (promise instanceof CompletionStagePromise) {
+      return ((CompletionStagePromise<V>) promise).stage;
+    }
+    final CompletableFuture<V> future = new CompletableFuture<>();
+    promise.done(new DoneCallback<V>() {
+      @Override
+      public void onFulfilled(V value) {
+        future.complete(value);
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        future.completeExceptionally(reason);
+      }
+    });
+    return future;
+  }
+
+  /** Unwraps the {@link CompletionException} dependent stages are completed with. */
+  static Throwable unwrap(Throwable t) {
+    if (t instanceof CompletionException && t.getCause() != null) {
+      return t.getCause();
+    }
+    return t;
+  }
+
+  private final CompletionStage<V> stage;
+
+  private CompletionStagePromise(CompletionStage<V> stage) {
+    this.stage = stage;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <R> CompletionStagePromise<R> then(final Callback<? super V, R> callback) {
+    requireNonNull(callback);
+    return new CompletionStagePromise<>(stage.handle(
+        new BiFunction<V, Throwable, CompletionStage<R>>() {
+          @Override
+          public CompletionStage<R> apply(V value, Throwable reason) {
+            try {
+              return adapt(reason == null
+                  ? callback.onFulfilled(value)
+                  : callback.onRejected(unwrap(reason)));
+            } catch (Throwable t) {
+              return CompletableFuture.failedFuture(t);
+            }
+          }
+        }).thenCompose((Function<CompletionStage<R>, CompletionStage<R>>) IDENTITY));
+  }
+
+  @Override
+  public <R> CompletionStagePromise<R> then(final ImmediateCallback<? super V, R> callback) {
+    requireNonNull(callback);
+    return new CompletionStagePromise<>(stage.handle(new BiFunction<V, Throwable, R>() {
+      @Override
+      public R apply(V value, Throwable reason) {
+        try {
+          return reason == null
+              ? callback.onFulfilled(value)
+              : callback.onRejected(unwrap(reason));
+        } catch (Throwable t) {
+          throw t instanceof CompletionException
+              ? (CompletionException) t
+              : new CompletionException(t);
+        }
+      }
+    }));
+  }
+
+  @Override
+  public void done(final DoneCallback<? super V> callback) {
+    requireNonNull(callback);
+    stage.whenComplete(new BiConsumer<V, Throwable>() {
+      @Override
+      public void accept(V value, Throwable reason) {
+        if (reason == null) {
+          callback.onFulfilled(value);
+        } else {
+          callback.onRejected(unwrap(reason));
+        }
+      }
+    });
+  }
+
+  @Override
+  public void done() {
+    if (stage instanceof CompletableFuture && ((CompletableFuture<V>) stage).isDone()) {
+      try {
+        ((CompletableFuture<V>) stage).get();
+        return;
+      } catch (ExecutionException ee) {
+        throw Promises.propagate(ee.getCause());
+      } catch (Throwable t) {
+        throw Promises.propagate(t);
+      }
+    }
+    done(new DoneCallback<V>() {
+      @Override
+      public void onFulfilled(V value) {
+        // no-op
+      }
+    });
+  }
+
+  @Override
+  public <R> CompletionStagePromise<R> then(Callback<? super V, R> callback, Executor executor) {
+    return then(AsyncCallbacks.<V, R>async(callback, executor));
+  }
+
+  @Override
+  public <R> CompletionStagePromise<R> then(ImmediateCallback<? super V, R> callback,
+      Executor executor) {
+    return then(AsyncCallbacks.<V, R>async(callback, executor));
+  }
+
+  @Override
+  public void done(DoneCallback<? super V> callback, Executor executor) {
+    done(AsyncCallbacks.<V>async(callback, executor));
+  }
+
+  /**
+   * Cancels the wrapped stage, if it supports {@link CompletionStage#toCompletableFuture()}.
+   * Cancellation is not propagated to the stages it depends on.
+   */
+  @Override
+  public boolean cancel() {
+    CompletableFuture<V> future;
+    try {
+      future = stage.toCompletableFuture();
+    } catch (UnsupportedOperationException uoe) {
+      return false;
+    }
+    return future.cancel(false);
+  }
+}
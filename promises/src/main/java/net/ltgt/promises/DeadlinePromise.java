@@ -0,0 +1,127 @@
+package net.ltgt.promises;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A promise that is rejected with a {@link PromiseTimeoutException} if not settled before its
+ * deadline, and whose derived promises share the same deadline.
+ * <p>
+ * On timeout, the promise is rejected by the {@link HashedWheelTimer} thread, which thus runs
+ * the callbacks registered without an executor.
+ *
+ * @see Promises#withTimeout(Promise, java.time.Duration)
+ */
+final class DeadlinePromise<V> extends ForwardingPromise<V> {
+
+  /**
+   * @param deadline in terms of {@link System#nanoTime()}
+   */
+  static <V> DeadlinePromise<V> create(Promise<V> promise, long deadline) {
+    TimeoutRace<V> race = new TimeoutRace<>();
+    DeadlinePromise<V> result = new DeadlinePromise<>(race.result, deadline);
+    race.result.propagateCancellationTo(promise);
+    IndexedCallback.register(promise, race, 0);
+    if (!race.isCompleted()) {
+      race.schedule(deadline);
+    }
+    return result;
+  }
+
+  private final Promise<V> delegate;
+  private final long deadline;
+
+  private DeadlinePromise(Promise<V> delegate, long deadline) {
+    this.delegate = delegate;
+    this.deadline = deadline;
+  }
+
+  @Override
+  protected Promise<V> getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public <R> Promise<R> then(Callback<? super V, R> callback) {
+    return create(super.then(callback), deadline);
+  }
+
+  @Override
+  public <R> Promise<R> then(ImmediateCallback<? super V, R> callback) {
+    return create(super.then(callback), deadline);
+  }
+
+  @Override
+  public <R> Promise<R> then(Callback<? super V, R> callback, Executor executor) {
+    return create(super.then(callback, executor), deadline);
+  }
+
+  @Override
+  public <R> Promise<R> then(ImmediateCallback<? super V, R> callback, Executor executor) {
+    return create(super.then(callback, executor), deadline);
+  }
+
+  /**
+   * Settles the result with the first of the input settling or the timer expiring.
+   * <p>
+   * Whichever comes first clears the reference to the result, so that an input that is never
+   * settled doesn't retain it; and settling the input cancels the timer.
+   */
+  private static final class TimeoutRace<V> extends IndexedCallback<V> implements Runnable {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<TimeoutRace, FulfillablePromise> RESULT =
+        AtomicReferenceFieldUpdater.newUpdater(TimeoutRace.class, FulfillablePromise.class,
+            "result");
+
+    volatile FulfillablePromise<V> result = FulfillablePromise.create();
+    private volatile HashedWheelTimer.Timeout timeout;
+
+    boolean isCompleted() {
+      return result == null;
+    }
+
+    void schedule(long deadline) {
+      timeout = HashedWheelTimer.INSTANCE.schedule(this, deadline);
+      if (isCompleted()) {
+        // settled concurrently, before the timeout could be recorded
+        timeout.cancel();
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+      FulfillablePromise<V> result = RESULT.getAndSet(this, null);
+      if (result != null) {
+        result.reject(new PromiseTimeoutException("Promise not settled before its deadline"));
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void onFulfilled(int index, V value) {
+      FulfillablePromise<V> result = RESULT.getAndSet(this, null);
+      if (result != null) {
+        cancelTimeout();
+        result.fulfill(value);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void onRejected(int index, Throwable reason) {
+      FulfillablePromise<V> result = RESULT.getAndSet(this, null);
+      if (result != null) {
+        cancelTimeout();
+        result.reject(reason);
+      }
+    }
+
+    private void cancelTimeout() {
+      HashedWheelTimer.Timeout timeout = this.timeout;
+      if (timeout != null) {
+        timeout.cancel();
+      }
+    }
+  }
+}
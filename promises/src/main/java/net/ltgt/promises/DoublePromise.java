@@ -0,0 +1,273 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A promise of a {@code double}, that is explicitly fulfilled or rejected, and whose value is
+ * never boxed, except when bridged to a {@link Promise} through {@link #boxed()}.
+ * <p>
+ * Callbacks are run the same way as for {@link FulfillablePromise}.
+ *
+ * @see IntPromise
+ * @see LongPromise
+ */
+public final class DoublePromise extends PrimitivePromise {
+
+  public abstract static class ImmediateCallback {
+    public abstract double onFulfilled(double value) throws Throwable;
+
+    public double onRejected(Throwable reason) throws Throwable {
+      throw reason;
+    }
+  }
+
+  public abstract static class DoneCallback {
+    public abstract void onFulfilled(double value);
+
+    public void onRejected(Throwable reason) {
+      Promises.propagate(reason);
+    }
+  }
+
+  public static DoublePromise create() {
+    return new DoublePromise();
+  }
+
+  public static DoublePromise fulfilled(double value) {
+    DoublePromise promise = new DoublePromise();
+    promise.fulfill(value);
+    return promise;
+  }
+
+  public static DoublePromise rejected(Throwable reason) {
+    DoublePromise promise = new DoublePromise();
+    promise.reject(reason);
+    return promise;
+  }
+
+  /**
+   * Returns a promise settled the same way as the given one; it's rejected with a
+   * {@link NullPointerException} if the given promise is fulfilled with {@code null}.
+   */
+  public static DoublePromise unbox(Promise<Double> promise) {
+    final DoublePromise ret = new DoublePromise();
+    promise.done(new Promise.DoneCallback<Double>() {
+      @Override
+      public void onFulfilled(Double value) {
+        if (value == null) {
+          ret.reject(new NullPointerException("promise fulfilled with null"));
+        } else {
+          ret.fulfill(value);
+        }
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  /**
+   * Returns a promise of the values of the given promises, in the same order, once they're all
+   * fulfilled; or rejected as soon as one of them is rejected.
+   *
+   * @see Promises#wait(Collection)
+   */
+  public static Promise<double[]> wait(Collection<DoublePromise> promises) {
+    final FulfillablePromise<double[]> ret = FulfillablePromise.create();
+    final double[] values = new double[promises.size()];
+    aggregate(promises, new Aggregator(values.length) {
+      @Override
+      void fulfilled(int index, PrimitivePromise source) {
+        values[index] = ((DoublePromise) source).value;
+      }
+
+      @Override
+      void done() {
+        ret.fulfill(values);
+      }
+
+      @Override
+      void rejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  private static final DoubleBinaryOperator SUM = new DoubleBinaryOperator() {
+    @Override
+    public double applyAsDouble(double left, double right) {
+      return left + right;
+    }
+  };
+
+  private static final DoubleBinaryOperator MIN = new DoubleBinaryOperator() {
+    @Override
+    public double applyAsDouble(double left, double right) {
+      return Math.min(left, right);
+    }
+  };
+
+  private static final DoubleBinaryOperator MAX = new DoubleBinaryOperator() {
+    @Override
+    public double applyAsDouble(double left, double right) {
+      return Math.max(left, right);
+    }
+  };
+
+  /**
+   * Returns a promise of the sum of the values of the given promises; {@code 0} if there are
+   * none. As values are added in the order the promises are fulfilled, the result may vary
+   * slightly due to rounding.
+   */
+  public static DoublePromise sum(Collection<DoublePromise> promises) {
+    return reduce(promises, SUM, 0);
+  }
+
+  /**
+   * Returns a promise of the smallest value of the given promises, as computed by
+   * {@link Math#min(double, double)}; rejected with a {@link NoSuchElementException} if there
+   * are none.
+   */
+  public static DoublePromise min(Collection<DoublePromise> promises) {
+    if (promises.isEmpty()) {
+      return rejected(new NoSuchElementException());
+    }
+    return reduce(promises, MIN, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Returns a promise of the largest value of the given promises, as computed by
+   * {@link Math#max(double, double)}; rejected with a {@link NoSuchElementException} if there
+   * are none.
+   */
+  public static DoublePromise max(Collection<DoublePromise> promises) {
+    if (promises.isEmpty()) {
+      return rejected(new NoSuchElementException());
+    }
+    return reduce(promises, MAX, Double.NEGATIVE_INFINITY);
+  }
+
+  private static DoublePromise reduce(Collection<DoublePromise> promises,
+      DoubleBinaryOperator operator, double identity) {
+    final DoublePromise ret = new DoublePromise();
+    final DoubleAccumulator accumulator = new DoubleAccumulator(operator, identity);
+    aggregate(promises, new Aggregator(promises.size()) {
+      @Override
+      void fulfilled(int index, PrimitivePromise source) {
+        accumulator.accumulate(((DoublePromise) source).value);
+      }
+
+      @Override
+      void done() {
+        ret.fulfill(accumulator.get());
+      }
+
+      @Override
+      void rejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  /** Written before the promise is marked fulfilled, and read after it's been seen as such. */
+  private double value;
+
+  private DoublePromise() {}
+
+  /**
+   * Fulfills the promise with the given value.
+   * <p>
+   * This is a no-op if the promise has been cancelled.
+   *
+   * @throws IllegalStateException if the promise has already been settled.
+   */
+  public void fulfill(double value) {
+    if (startCompletion(false)) {
+      this.value = value;
+      finishCompletion(null);
+    }
+  }
+
+  public DoublePromise then(final ImmediateCallback callback) {
+    requireNonNull(callback);
+    final DoublePromise ret = new DoublePromise();
+    if (isPending() && addHandler(new Handler() {
+      @Override
+      void fulfill(PrimitivePromise source) {
+        try {
+          ret.fulfill(callback.onFulfilled(((DoublePromise) source).value));
+        } catch (Throwable t) {
+          ret.reject(t);
+        }
+      }
+
+      @Override
+      void reject(Throwable reason) {
+        try {
+          ret.fulfill(callback.onRejected(reason));
+        } catch (Throwable t) {
+          ret.reject(t);
+        }
+      }
+    })) {
+      return ret;
+    }
+    Throwable reason = reason();
+    try {
+      ret.fulfill(reason == null ? callback.onFulfilled(value) : callback.onRejected(reason));
+    } catch (Throwable t) {
+      ret.reject(t);
+    }
+    return ret;
+  }
+
+  public void done(final DoneCallback callback) {
+    requireNonNull(callback);
+    if (isPending() && addHandler(new Handler() {
+      @Override
+      void fulfill(PrimitivePromise source) {
+        callback.onFulfilled(((DoublePromise) source).value);
+      }
+
+      @Override
+      void reject(Throwable reason) {
+        callback.onRejected(reason);
+      }
+    })) {
+      return;
+    }
+    Throwable reason = reason();
+    if (reason == null) {
+      callback.onFulfilled(value);
+    } else {
+      callback.onRejected(reason);
+    }
+  }
+
+  /** Returns a {@link Promise} settled the same way as this promise, with the value boxed. */
+  public Promise<Double> boxed() {
+    final FulfillablePromise<Double> ret = FulfillablePromise.create();
+    done(new DoneCallback() {
+      @Override
+      public void onFulfilled(double value) {
+        ret.fulfill(value);
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+}
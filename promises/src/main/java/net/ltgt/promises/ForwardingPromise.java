@@ -1,5 +1,7 @@
 package net.ltgt.promises;
 
+import java.util.concurrent.Executor;
+
 public abstract class ForwardingPromise<V> implements Promise<V> {
 
   protected abstract Promise<V> getDelegate();
@@ -23,4 +25,24 @@ public abstract class ForwardingPromise<V> implements Promise<V> {
   public void done() {
     getDelegate().done();
   }
+
+  @Override
+  public <R> Promise<R> then(Callback<? super V, R> callback, Executor executor) {
+    return getDelegate().then(callback, executor);
+  }
+
+  @Override
+  public <R> Promise<R> then(ImmediateCallback<? super V, R> callback, Executor executor) {
+    return getDelegate().then(callback, executor);
+  }
+
+  @Override
+  public void done(DoneCallback<? super V> callback, Executor executor) {
+    getDelegate().done(callback, executor);
+  }
+
+  @Override
+  public boolean cancel() {
+    return getDelegate().cancel();
+  }
 }
@@ -0,0 +1,712 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Promise} that is explicitly fulfilled or rejected.
+ * <p>
+ * The implementation is lock-free: the whole state of the promise is held in a single
+ * atomically-updated field, that is either the top of a stack of handlers (while pending) or
+ * the outcome of the promise (once settled). Registering a handler pushes it onto the stack,
+ * and settling the promise atomically swaps the stack for the outcome before running the
+ * handlers, in the order they were registered.
+ * <p>
+ * A promise derived from another one through {@code then} keeps a link to it, or to the
+ * promise returned by the callback once it's been called, so that cancellation can be
+ * propagated upstream. A promise is only cancelled that way once all the promises derived from
+ * it are cancelled, and as long as no other callback has been registered on it.
+ *
+ * @param <V> {@inheritDoc}
+ */
+public class FulfillablePromise<V> implements Promise<V> {
+
+  public static <V> FulfillablePromise<V> create() {
+    return create(AsyncStackTraces.sample());
+  }
+
+  /**
+   * Creates a promise that is traced by {@link AsyncStackTraces} only if {@code traced}, rather
+   * than being sampled; for promises that are part of a chain rather than starting one.
+   */
+  static <V> FulfillablePromise<V> create(boolean traced) {
+    boolean tracked = PromiseLeakDetector.sample();
+    if (PromiseMetrics.ENABLED || tracked || traced) {
+      return new Instrumented<>(tracked, traced);
+    }
+    return new FulfillablePromise<>();
+  }
+
+  /**
+   * Creates a promise; prefer {@link #create()}, that also instruments the promise, e.g. for the
+   * {@link PromiseLeakDetector}.
+   */
+  public FulfillablePromise() {
+    // counted here rather than in create(), as every promise is counted once settled
+    if (PromiseMetrics.ENABLED) {
+      PromiseMetrics.created(PromiseMetrics.Source.FULFILLABLE);
+    }
+  }
+
+  /**
+   * A promise remembering when it was created, for {@link PromiseMetrics}, and/or tracked by
+   * the {@link PromiseLeakDetector}, and/or traced by {@link AsyncStackTraces}.
+   */
+  private static final class Instrumented<V> extends FulfillablePromise<V> {
+    private final long createdAt = PromiseMetrics.ENABLED ? System.nanoTime() : 0;
+    @Nullable
+    private final PromiseLeakDetector.Leak leak;
+    private final boolean traced;
+
+    Instrumented(boolean tracked, boolean traced) {
+      this.leak = tracked ? PromiseLeakDetector.track(this) : null;
+      this.traced = traced;
+    }
+
+    @Override
+    boolean isTraced() {
+      return traced;
+    }
+
+    @Override
+    long pendingNanos() {
+      return PromiseMetrics.ENABLED ? System.nanoTime() - createdAt : -1;
+    }
+
+    @Override
+    void settled(@Nullable Throwable reason, boolean observed) {
+      if (leak != null) {
+        leak.settled(reason, observed);
+      }
+    }
+
+    @Override
+    void rejectionObserved() {
+      if (leak != null) {
+        leak.rejectionObserved();
+      }
+    }
+  }
+
+  private static final class Outcome {
+    static final Outcome NULL = new Outcome(null, null, false);
+
+    final Object value;
+    final Throwable reason;
+    final boolean rejected;
+
+    Outcome(@Nullable Object value, @Nullable Throwable reason, boolean rejected) {
+      this.value = value;
+      this.reason = reason;
+      this.rejected = rejected;
+    }
+  }
+
+  private static abstract class Handler<V> {
+    Handler<V> next;
+
+    abstract void fulfill(V value);
+
+    abstract void reject(Throwable reason);
+  }
+
+  /**
+   * A handler settling a promise derived from its source, that is dropped when that promise is
+   * cancelled.
+   */
+  private static abstract class DependentHandler<V, R> extends Handler<V> {
+    private final FulfillablePromise<V> source;
+    /** Cleared when dropped. */
+    volatile FulfillablePromise<R> promise;
+
+    DependentHandler(FulfillablePromise<V> source, FulfillablePromise<R> promise) {
+      this.source = source;
+      this.promise = promise;
+    }
+
+    void drop() {
+      promise = null;
+      source.dependentCancelled();
+    }
+  }
+
+  private static final class ThenHandler<V, R> extends DependentHandler<V, R> {
+    /** Cleared when dropped. */
+    private volatile Callback<? super V, R> callback;
+
+    ThenHandler(FulfillablePromise<V> source, FulfillablePromise<R> promise,
+        Callback<? super V, R> callback) {
+      super(source, promise);
+      this.callback = callback;
+    }
+
+    @Override
+    void drop() {
+      callback = null;
+      super.drop();
+    }
+
+    @Override
+    void fulfill(V value) {
+      FulfillablePromise<R> promise = this.promise;
+      Callback<? super V, R> callback = this.callback;
+      if (promise == null || callback == null) {
+        return;
+      }
+      Promise<R> result;
+      try {
+        result = requireNonNull(callback.onFulfilled(value));
+      } catch (Throwable t) {
+        promise.reject(t);
+        return;
+      }
+      promise.follow(result, this);
+    }
+
+    @Override
+    void reject(Throwable reason) {
+      FulfillablePromise<R> promise = this.promise;
+      Callback<? super V, R> callback = this.callback;
+      if (promise == null || callback == null) {
+        return;
+      }
+      Promise<R> result;
+      try {
+        result = requireNonNull(callback.onRejected(reason));
+      } catch (Throwable t) {
+        promise.reject(t);
+        return;
+      }
+      promise.follow(result, this);
+    }
+  }
+
+  private static final class ThenImmediateHandler<V, R> extends DependentHandler<V, R> {
+    /** Cleared when dropped. */
+    private volatile ImmediateCallback<? super V, R> callback;
+
+    ThenImmediateHandler(FulfillablePromise<V> source, FulfillablePromise<R> promise,
+        ImmediateCallback<? super V, R> callback) {
+      super(source, promise);
+      this.callback = callback;
+    }
+
+    @Override
+    void drop() {
+      callback = null;
+      super.drop();
+    }
+
+    @Override
+    void fulfill(V value) {
+      FulfillablePromise<R> promise = this.promise;
+      ImmediateCallback<? super V, R> callback = this.callback;
+      if (promise == null || callback == null) {
+        return;
+      }
+      try {
+        promise.fulfill(callback.onFulfilled(value));
+      } catch (Throwable t) {
+        promise.reject(t);
+      }
+    }
+
+    @Override
+    void reject(Throwable reason) {
+      FulfillablePromise<R> promise = this.promise;
+      ImmediateCallback<? super V, R> callback = this.callback;
+      if (promise == null || callback == null) {
+        return;
+      }
+      try {
+        promise.fulfill(callback.onRejected(reason));
+      } catch (Throwable t) {
+        promise.reject(t);
+      }
+    }
+  }
+
+  /** Records the call site where a handler was registered into the rejection reasons. */
+  private static final class TracedHandler<V> extends Handler<V> {
+    private final Handler<V> handler;
+    @Nullable
+    private final StackTraceElement callSite;
+
+    TracedHandler(Handler<V> handler, @Nullable StackTraceElement callSite) {
+      this.handler = handler;
+      this.callSite = callSite;
+    }
+
+    @Override
+    void fulfill(V value) {
+      handler.fulfill(value);
+    }
+
+    @Override
+    void reject(Throwable reason) {
+      AsyncStackTraces.record(reason, callSite);
+      handler.reject(reason);
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<FulfillablePromise, Object> STATE =
+      AtomicReferenceFieldUpdater.newUpdater(FulfillablePromise.class, Object.class, "state");
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<FulfillablePromise, Object> UPSTREAM =
+      AtomicReferenceFieldUpdater.newUpdater(FulfillablePromise.class, Object.class, "upstream");
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<FulfillablePromise> INTEREST =
+      AtomicIntegerFieldUpdater.newUpdater(FulfillablePromise.class, "interest");
+
+  /**
+   * Either {@code null} (pending, without handler), the top of the {@link Handler} stack
+   * (pending), or an {@link Outcome} (settled).
+   */
+  private volatile Object state;
+
+  /**
+   * What to cancel when this promise is cancelled: either the {@link DependentHandler} this
+   * promise was derived through, the {@link Promise} it follows, or a {@link Future};
+   * cleared once settled.
+   */
+  private volatile Object upstream;
+
+  /** Number of handlers registered on this promise, minus those that have been dropped. */
+  private volatile int interest;
+
+  /**
+   * Fulfills the promise with the given value.
+   * <p>
+   * Callbacks are run on the calling thread, after the promise has been settled and its
+   * handlers detached; no lock is held while they run, so a slow callback doesn't prevent
+   * other threads from registering callbacks on (and thus observing) the promise.
+   * <p>
+   * When called from within a callback, the callbacks of this promise are queued and run
+   * after that callback returns, rather than recursively; this keeps the stack depth constant,
+   * however long the chain of promises is.
+   * <p>
+   * This is a no-op if the promise has been cancelled.
+   *
+   * @throws IllegalStateException if the promise has already been settled.
+   */
+  public void fulfill(@Nullable V value) {
+    complete(value == null ? Outcome.NULL : new Outcome(value, null, false));
+  }
+
+  /**
+   * Rejects the promise with the given reason.
+   * <p>
+   * Callbacks are run the same way as for {@link #fulfill(Object)}.
+   * <p>
+   * This is a no-op if the promise has been cancelled.
+   *
+   * @throws IllegalStateException if the promise has already been settled.
+   */
+  public void reject(Throwable reason) {
+    complete(new Outcome(null, reason, true));
+  }
+
+  /**
+   * Cancels the promise, if still pending, by rejecting it with a
+   * {@link CancellationException}, and propagates the cancellation upstream.
+   */
+  @Override
+  public boolean cancel() {
+    return complete(new Outcome(null, new CancellationException(), true));
+  }
+
+  boolean isCancelled() {
+    Object s = state;
+    return s instanceof Outcome && isCancellation((Outcome) s);
+  }
+
+  /**
+   * Makes cancelling this promise cancel the given future (without interrupting it), e.g. the
+   * future of the computation that will eventually settle this promise.
+   *
+   * @throws IllegalStateException if this promise was derived from another one, or this method
+   *         was already called.
+   */
+  public void propagateCancellationTo(Future<?> future) {
+    setUpstream(requireNonNull(future));
+  }
+
+  /**
+   * Makes cancelling this promise cancel the given promise, e.g. the promise whose outcome will
+   * eventually be used to settle this promise.
+   *
+   * @throws IllegalStateException if this promise was derived from another one, or this method
+   *         was already called.
+   */
+  public void propagateCancellationTo(Promise<?> promise) {
+    setUpstream(requireNonNull(promise));
+  }
+
+  private void setUpstream(Object upstream) {
+    if (!UPSTREAM.compareAndSet(this, null, upstream)) {
+      throw new IllegalStateException();
+    }
+    // if settled concurrently, upstream might not have been seen by complete()
+    Object s = state;
+    if (s instanceof Outcome && UPSTREAM.compareAndSet(this, upstream, null)
+        && isCancellation((Outcome) s)) {
+      cancel(upstream);
+    }
+  }
+
+  /**
+   * Settles this promise the same way as the given promise, that the callback of the given
+   * handler returned.
+   */
+  private void follow(Promise<V> promise, DependentHandler<?, V> handler) {
+    if (!UPSTREAM.compareAndSet(this, handler, promise)) {
+      // cancelled concurrently
+      promise.cancel();
+      return;
+    }
+    promise.done(new DoneCallback<V>() {
+      @Override
+      public void onFulfilled(V value) {
+        fulfill(value);
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        reject(reason);
+      }
+    });
+  }
+
+  private void dependentCancelled() {
+    if (INTEREST.decrementAndGet(this) == 0) {
+      cancel();
+    }
+  }
+
+  private static boolean isCancellation(Outcome outcome) {
+    return outcome.rejected && outcome.reason instanceof CancellationException;
+  }
+
+  private static void cancel(Object upstream) {
+    if (upstream instanceof DependentHandler) {
+      ((DependentHandler<?, ?>) upstream).drop();
+    } else if (upstream instanceof Promise) {
+      ((Promise<?>) upstream).cancel();
+    } else if (upstream instanceof Future) {
+      ((Future<?>) upstream).cancel(false);
+    }
+  }
+
+  /**
+   * @return {@code false} if the promise was already settled, and either it was cancelled or
+   *         the outcome is a cancellation.
+   * @throws IllegalStateException if the promise was already settled otherwise.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean complete(Outcome outcome) {
+    Object s;
+    do {
+      s = state;
+      if (s instanceof Outcome) {
+        if (isCancellation(outcome) || isCancellation((Outcome) s)) {
+          return false;
+        }
+        throw new IllegalStateException();
+      }
+    } while (!STATE.compareAndSet(this, s, outcome));
+
+    Object upstream = UPSTREAM.getAndSet(this, null);
+    if (upstream != null && isCancellation(outcome)) {
+      cancel(upstream);
+    }
+
+    // The stack is now detached from the promise and owned by the current thread;
+    // reverse it so handlers are run in the order they were registered.
+    Handler<V> handlers = null;
+    int count = 0;
+    for (Handler<V> h = (Handler<V>) s; h != null; count++) {
+      Handler<V> next = h.next;
+      h.next = handlers;
+      handlers = h;
+      h = next;
+    }
+    if (PromiseMetrics.ENABLED) {
+      PromiseMetrics.settled(PromiseMetrics.Source.FULFILLABLE, pendingNanos(), count,
+          outcome.rejected ? outcome.reason : null);
+    }
+    settled(outcome.rejected ? outcome.reason : null, handlers != null);
+    if (handlers != null) {
+      Trampoline.execute(new RunHandlers<>(handlers, outcome));
+    }
+    return true;
+  }
+
+  /** Returns how long the promise has been pending, or {@code -1} if unknown. */
+  long pendingNanos() {
+    return -1;
+  }
+
+  /** Called once settled, with whether callbacks were registered while pending. */
+  void settled(@Nullable Throwable reason, boolean observed) {}
+
+  /** Called when a callback is registered once rejected. */
+  void rejectionObserved() {}
+
+  /** Whether to record where callbacks are registered, for {@link AsyncStackTraces}. */
+  boolean isTraced() {
+    return false;
+  }
+
+  /** Runs the detached handlers of a settled promise. */
+  private static final class RunHandlers<V> implements Runnable {
+    private final Handler<V> handlers;
+    private final Outcome outcome;
+
+    RunHandlers(Handler<V> handlers, Outcome outcome) {
+      this.handlers = handlers;
+      this.outcome = outcome;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+      for (Handler<V> handler = handlers; handler != null; handler = handler.next) {
+        if (outcome.rejected) {
+          handler.reject(outcome.reason);
+        } else {
+          handler.fulfill((V) outcome.value);
+        }
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <R> Promise<R> then(Callback<? super V, R> callback) {
+    Object s = state;
+    boolean traced = isTraced();
+    StackTraceElement callSite = traced ? AsyncStackTraces.callSite() : null;
+    if (!(s instanceof Outcome)) {
+      requireNonNull(callback);
+      FulfillablePromise<R> promise = create(traced);
+      ThenHandler<V, R> handler = new ThenHandler<>(this, promise, callback);
+      promise.upstream = handler;
+      Handler<V> registered = traced ? new TracedHandler<>(handler, callSite) : handler;
+      if (!addHandler(registered)) {
+        // settled concurrently: rather than discarding the promise, which might be tracked
+        // already, settle it right away
+        runSettled(registered);
+      }
+      return promise;
+    }
+    Outcome outcome = (Outcome) s;
+    if (outcome.rejected) {
+      rejectionObserved();
+      if (traced) {
+        AsyncStackTraces.record(outcome.reason, callSite);
+      }
+      try {
+        return callback.onRejected(outcome.reason);
+      } catch (Throwable t) {
+        return Promises.rejected(t);
+      }
+    } else {
+      try {
+        return callback.onFulfilled((V) outcome.value);
+      } catch (Throwable t) {
+        return Promises.rejected(t);
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <R> Promise<R> then(ImmediateCallback<? super V, R> callback) {
+    Object s = state;
+    boolean traced = isTraced();
+    StackTraceElement callSite = traced ? AsyncStackTraces.callSite() : null;
+    if (!(s instanceof Outcome)) {
+      requireNonNull(callback);
+      FulfillablePromise<R> promise = create(traced);
+      ThenImmediateHandler<V, R> handler = new ThenImmediateHandler<>(this, promise, callback);
+      promise.upstream = handler;
+      Handler<V> registered = traced ? new TracedHandler<>(handler, callSite) : handler;
+      if (!addHandler(registered)) {
+        // settled concurrently: rather than discarding the promise, which might be tracked
+        // already, settle it right away
+        runSettled(registered);
+      }
+      return promise;
+    }
+    Outcome outcome = (Outcome) s;
+    if (outcome.rejected) {
+      rejectionObserved();
+      if (traced) {
+        AsyncStackTraces.record(outcome.reason, callSite);
+      }
+      try {
+        return Promises.fulfilled(callback.onRejected(outcome.reason));
+      } catch (Throwable t) {
+        return Promises.rejected(t);
+      }
+    } else {
+      try {
+        return Promises.fulfilled(callback.onFulfilled((V) outcome.value));
+      } catch (Throwable t) {
+        return Promises.rejected(t);
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void done(final DoneCallback<? super V> callback) {
+    Object s = state;
+    boolean traced = isTraced();
+    StackTraceElement callSite = traced ? AsyncStackTraces.callSite() : null;
+    if (!(s instanceof Outcome)) {
+      requireNonNull(callback);
+      Handler<V> handler = new Handler<V>() {
+        @Override
+        void fulfill(V value) {
+          callback.onFulfilled(value);
+        }
+
+        @Override
+        void reject(Throwable reason) {
+          callback.onRejected(reason);
+        }
+      };
+      if (addHandler(traced ? new TracedHandler<>(handler, callSite) : handler)) {
+        return;
+      }
+      s = state;
+    }
+    Outcome outcome = (Outcome) s;
+    if (outcome.rejected) {
+      rejectionObserved();
+      if (traced) {
+        AsyncStackTraces.record(outcome.reason, callSite);
+      }
+      callback.onRejected(outcome.reason);
+    } else {
+      callback.onFulfilled((V) outcome.value);
+    }
+  }
+
+  @Override
+  public void done() {
+    Object s = state;
+    boolean traced = isTraced();
+    StackTraceElement callSite = traced ? AsyncStackTraces.callSite() : null;
+    if (!(s instanceof Outcome)) {
+      Handler<V> handler = new Handler<V>() {
+        @Override
+        void fulfill(V value) {
+          // no-op
+        }
+
+        @Override
+        void reject(Throwable reason) {
+          Promises.propagate(reason);
+        }
+      };
+      if (addHandler(traced ? new TracedHandler<>(handler, callSite) : handler)) {
+        return;
+      }
+      s = state;
+    }
+    Outcome outcome = (Outcome) s;
+    if (outcome.rejected) {
+      rejectionObserved();
+      if (traced) {
+        AsyncStackTraces.record(outcome.reason, callSite);
+      }
+      throw Promises.propagate(outcome.reason);
+    }
+  }
+
+  /**
+   * Same as {@link #done(DoneCallback)} but saves allocating a {@link DoneCallback} per promise
+   * for callbacks registered on many promises.
+   */
+  @SuppressWarnings("unchecked")
+  void done(final IndexedCallback<? super V> callback, final int index) {
+    Object s = state;
+    if (!(s instanceof Outcome)) {
+      if (addHandler(new IndexedHandler<V>(callback, index))) {
+        return;
+      }
+      s = state;
+    }
+    Outcome outcome = (Outcome) s;
+    if (outcome.rejected) {
+      rejectionObserved();
+      callback.onRejected(index, outcome.reason);
+    } else {
+      callback.onFulfilled(index, (V) outcome.value);
+    }
+  }
+
+  private static final class IndexedHandler<V> extends Handler<V> {
+    private final IndexedCallback<? super V> callback;
+    private final int index;
+
+    IndexedHandler(IndexedCallback<? super V> callback, int index) {
+      this.callback = callback;
+      this.index = index;
+    }
+
+    @Override
+    void fulfill(V value) {
+      callback.onFulfilled(index, value);
+    }
+
+    @Override
+    void reject(Throwable reason) {
+      callback.onRejected(index, reason);
+    }
+  }
+
+  /** Runs a handler that couldn't be registered because the promise has been settled. */
+  @SuppressWarnings("unchecked")
+  private void runSettled(Handler<V> handler) {
+    Outcome outcome = (Outcome) state;
+    if (outcome.rejected) {
+      rejectionObserved();
+      handler.reject(outcome.reason);
+    } else {
+      handler.fulfill((V) outcome.value);
+    }
+  }
+
+  /**
+   * Pushes the handler onto the stack, unless the promise has been settled.
+   *
+   * @return {@code false} if the promise has already been settled, in which case the handler
+   *         hasn't been registered.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean addHandler(Handler<V> handler) {
+    // count the handler before it's reachable, so it can't be dropped before being counted
+    INTEREST.incrementAndGet(this);
+    for (;;) {
+      Object s = state;
+      if (s instanceof Outcome) {
+        INTEREST.decrementAndGet(this);
+        return false;
+      }
+      handler.next = (Handler<V>) s;
+      if (STATE.compareAndSet(this, s, handler)) {
+        return true;
+      }
+    }
+  }
+}
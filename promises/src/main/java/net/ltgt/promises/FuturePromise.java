@@ -0,0 +1,419 @@
+package net.ltgt.promises;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FluentFuture;
+import com.google.common.util.concurrent.ForwardingListenableFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * A {@link Promise} around a {@link Future}, that is also a {@link Future}.
+ * <p>
+ * Cancelling a promise derived through {@code then} cancels the future it's been derived from,
+ * as well as the promise returned by the callback if it's already been called. Cancellation
+ * never interrupts the running computation.
+ * <p>
+ * Callbacks registered without an explicit executor are run by the executor the promise was
+ * created with, {@link MoreExecutors#directExecutor()} by default.
+ * 
+ * @param <V> {@inheritDoc}
+ */
+public class FuturePromise<V> extends ForwardingListenableFuture<V> implements Promise<V> {
+
+  public interface VoidFunction<V> {
+
+    void apply(@Nullable V input);
+  }
+
+  public static <V> FuturePromise<V> create(final ListenableFuture <V> future) {
+    return create(future, directExecutor());
+  }
+
+  /**
+   * Returns a promise around the given future, whose callbacks are run by the given executor
+   * unless another one is given when registering them. Promises derived from it use the same
+   * executor by default.
+   */
+  public static <V> FuturePromise<V> create(ListenableFuture<V> future, Executor executor) {
+    requireNonNull(future);
+    requireNonNull(executor);
+    if (future instanceof FuturePromise) {
+      FuturePromise<V> promise = (FuturePromise<V>) future;
+      if (promise.executor == executor) {
+        return promise;
+      }
+      future = promise.future;
+    }
+    return new FuturePromise<>(future, executor);
+  }
+
+  /**
+   * Returns a {@link ListenableFuture} settled the same way as the given promise.
+   * <p>
+   * The future wrapped by a {@link FuturePromise} is returned as-is, so that Guava can use its
+   * fast paths for its own implementations (e.g. futures returned by
+   * {@link Futures#transformAsync}, or {@link SettableFuture}).
+   */
+  public static <V> ListenableFuture<V> adapt(Promise<V> promise) {
+    if (promise instanceof FuturePromise) {
+      return ((FuturePromise<V>) promise).future;
+    }
+    final SettableFuture<V> future = SettableFuture.create();
+    promise.done(new DoneCallback<V>() {
+      @Override
+      public void onFulfilled(V value) {
+        future.set(value);
+      }
+      @Override
+      public void onRejected(Throwable reason) {
+        future.setException(reason);
+      }
+    });
+    return future;
+  }
+
+  private final ListenableFuture<V> future;
+  private final Executor executor;
+
+  private FuturePromise(ListenableFuture<V> wrappedFuture, Executor executor) {
+    this.future = wrappedFuture;
+    this.executor = executor;
+    if (PromiseMetrics.ENABLED) {
+      recordMetrics(wrappedFuture);
+    }
+  }
+
+  private static void recordMetrics(final ListenableFuture<?> future) {
+    PromiseMetrics.created(PromiseMetrics.Source.FUTURE);
+    final long createdAt = System.nanoTime();
+    future.addListener(new Runnable() {
+      @Override
+      public void run() {
+        Throwable reason = null;
+        try {
+          Futures.getDone(future);
+        } catch (ExecutionException ee) {
+          reason = ee.getCause();
+        } catch (Throwable t) {
+          reason = t;
+        }
+        PromiseMetrics.settled(PromiseMetrics.Source.FUTURE, System.nanoTime() - createdAt, -1,
+            reason);
+      }
+    }, directExecutor());
+  }
+
+  /**
+   * Returns a {@link FluentFuture} around the wrapped future, which is the wrapped future itself
+   * if it already is a {@link FluentFuture}.
+   */
+  public FluentFuture<V> toFluentFuture() {
+    return FluentFuture.from(future);
+  }
+
+  @Override
+  public <R> FuturePromise<R> then(Callback<? super V, R> callback) {
+    return then(callback, executor);
+  }
+
+  @Override
+  public <R> FuturePromise<R> then(ImmediateCallback<? super V, R> callback) {
+    return then(callback, executor);
+  }
+
+  /**
+   * Same as {@link #then(Callback)} but the callback is run by the given executor.
+   * <p>
+   * Unlike with other promises, the derived promise uses the given executor by default.
+   */
+  @Override
+  public <R> FuturePromise<R> then(final Callback<? super V, R> callback, Executor executor) {
+    requireNonNull(callback);
+    ThenFuture<V, R> ret = new ThenFuture<V, R>(future, executor) {
+      @Override
+      void fulfilled(V value) {
+        follow(callback.onFulfilled(value));
+      }
+
+      @Override
+      void rejected(Throwable reason) {
+        follow(callback.onRejected(reason));
+      }
+    };
+    future.addListener(ret, directExecutor());
+    return new FuturePromise<>(ret, executor);
+  }
+
+  /**
+   * Same as {@link #then(ImmediateCallback)} but the callback is run by the given executor.
+   *
+   * @see #then(Callback, Executor)
+   */
+  @Override
+  public <R> FuturePromise<R> then(final ImmediateCallback<? super V, R> callback,
+      Executor executor) {
+    requireNonNull(callback);
+    ThenFuture<V, R> ret = new ThenFuture<V, R>(future, executor) {
+      @Override
+      void fulfilled(V value) throws Throwable {
+        set(callback.onFulfilled(value));
+      }
+
+      @Override
+      void rejected(Throwable reason) throws Throwable {
+        set(callback.onRejected(reason));
+      }
+    };
+    future.addListener(ret, directExecutor());
+    return new FuturePromise<>(ret, executor);
+  }
+
+  @Override
+  public void done(DoneCallback<? super V> callback) {
+    done(callback, executor);
+  }
+
+  @Override
+  public void done(DoneCallback<? super V> callback, Executor executor) {
+    final DoneCallback<? super V> cb = executor == directExecutor()
+        ? requireNonNull(callback)
+        : AsyncCallbacks.<V>async(callback, executor);
+    then(new FutureCallback<V>() {
+      @Override
+      public void onSuccess(V result) {
+        cb.onFulfilled(result);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        cb.onRejected(t);
+      }
+    }, directExecutor());
+  }
+
+  @Override
+  public void done() {
+    if (future.isDone()) {
+      try {
+        future.get();
+        return;
+      } catch (ExecutionException ee) {
+        throw Promises.propagate(ee.getCause());
+      } catch (Throwable t) {
+        // This shouldn't ever happen, but just in case:
+        throw Promises.propagate(t);
+      }
+    }
+
+    then(new FutureCallback<V>() {
+      @Override
+      public void onSuccess(V result) {
+        // no-op
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        throw Promises.propagate(t);
+      }
+    });
+  }
+
+  /** Cancels the wrapped future, without interrupting it. */
+  @Override
+  public boolean cancel() {
+    return cancel(false);
+  }
+
+  public void then(FutureCallback<? super V> callback) {
+    then(callback, executor);
+  }
+
+  public void then(FutureCallback<? super V> callback, Executor executor) {
+    Futures.addCallback(future, callback, executor);
+  }
+
+  public <R> FuturePromise<R> then(final Function<? super V, Promise<R>> fulfilled) {
+    return then(new Callback<V, R>() {
+      @Override
+      public Promise<R> onFulfilled(V value) {
+        return fulfilled.apply(value);
+      }
+    });
+  }
+
+  public <R> FuturePromise<R> then(AsyncFunction<? super V, R> fulfilled) {
+    return new FuturePromise<>(Futures.transformAsync(future, fulfilled, executor), executor);
+  }
+
+  public <R> FuturePromise<R> then(final AsyncFunction<? super V, R> fulfilled,
+      final AsyncFunction<Throwable, R> rejected) {
+    return then(new Callback<V, R>() {
+      @Override
+      public Promise<R> onFulfilled(V value) {
+        try {
+          return create(fulfilled.apply(value));
+        } catch (Throwable t) {
+          return Promises.rejected(t);
+        }
+      }
+      @Override
+      public Promise<R> onRejected(Throwable reason) {
+        try {
+          return create(rejected.apply(reason));
+        } catch (Throwable t) {
+          return Promises.rejected(t);
+        }
+      }
+    });
+  }
+
+  public <R> FuturePromise<R> then(final Function<? super V, Promise<R>> fulfilled,
+      final Function<Throwable, Promise<R>> rejected) {
+    return then(new Callback<V, R>() {
+      @Override
+      public Promise<R> onFulfilled(V value) {
+        return fulfilled.apply(value);
+      }
+      @Override
+      public Promise<R> onRejected(Throwable reason) {
+        return rejected.apply(reason);
+      }
+    });
+  }
+
+  public void done(final VoidFunction<? super V> fulfilled, final VoidFunction<Throwable> rejected) {
+    done(new DoneCallback<V>() {
+      @Override
+      public void onFulfilled(V value) {
+        fulfilled.apply(value);
+      }
+      @Override
+      public void onRejected(Throwable reason) {
+        rejected.apply(reason);
+      }
+    });
+  }
+
+  /**
+   * The future of a promise derived through {@code then}, that is also the listener run when
+   * its source completes; so a stage costs a single future.
+   * <p>
+   * When the callback returns a {@link FuturePromise}, its future is set as the result through
+   * {@link #setFuture(ListenableFuture)}, without any intermediate callback.
+   */
+  private static abstract class ThenFuture<V, R> extends AbstractFuture<R> implements Runnable {
+    /**
+     * The source future, then the promise returned by the callback; cancelled if this future is
+     * cancelled.
+     */
+    private volatile Object upstream;
+    private final Executor executor;
+    /** Whether {@link #run()} has already been dispatched to the executor. */
+    private boolean dispatched;
+
+    ThenFuture(ListenableFuture<V> source, Executor executor) {
+      this.upstream = source;
+      this.executor = requireNonNull(executor);
+    }
+
+    abstract void fulfilled(@Nullable V value) throws Throwable;
+
+    abstract void rejected(Throwable reason) throws Throwable;
+
+    /**
+     * Run as a listener of the source with {@link MoreExecutors#directExecutor()}, then
+     * dispatches itself to the executor, unless that's the direct executor or the one that's
+     * already running the current task. This saves the per-listener wrapper Guava would
+     * allocate, while propagating a rejected execution to this future.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public final void run() {
+      if (isDone()) {
+        // cancelled
+        return;
+      }
+      if (!dispatched && executor != directExecutor()) {
+        dispatched = true;
+        try {
+          AsyncCallbacks.execute(executor, this);
+        } catch (Throwable t) {
+          setException(t);
+        }
+        return;
+      }
+      ListenableFuture<V> source = (ListenableFuture<V>) upstream;
+      try {
+        V value;
+        try {
+          value = Futures.getDone(source);
+        } catch (ExecutionException ee) {
+          rejected(ee.getCause());
+          return;
+        } catch (CancellationException ce) {
+          rejected(ce);
+          return;
+        }
+        fulfilled(value);
+      } catch (Throwable t) {
+        setException(t);
+      }
+    }
+
+    final void follow(Promise<R> promise) {
+      if (promise instanceof FuturePromise) {
+        setFuture(((FuturePromise<R>) promise).future);
+        return;
+      }
+      upstream = promise;
+      if (isCancelled()) {
+        promise.cancel();
+        return;
+      }
+      promise.done(new DoneCallback<R>() {
+        @Override
+        public void onFulfilled(R value) {
+          set(value);
+        }
+
+        @Override
+        public void onRejected(Throwable reason) {
+          setException(reason);
+        }
+      });
+    }
+
+    @Override
+    protected void afterDone() {
+      Object upstream = this.upstream;
+      this.upstream = null;
+      if (upstream != null && isCancelled()) {
+        if (upstream instanceof Future) {
+          ((Future<?>) upstream).cancel(false);
+        } else {
+          ((Promise<?>) upstream).cancel();
+        }
+      }
+    }
+  }
+
+  @Override
+  protected ListenableFuture<V> delegate() {
+    return future;
+  }
+}
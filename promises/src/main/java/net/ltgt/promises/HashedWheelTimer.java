@@ -0,0 +1,158 @@
+package net.ltgt.promises;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A timer, shared by all timeouts, that trades precision for very cheap scheduling and
+ * cancellation, so that millions of timeouts can be pending at the same time.
+ * <p>
+ * Timeouts are hashed into the buckets of a wheel, according to their deadline; a single
+ * daemon thread ticks, and expires the timeouts in the bucket for the current tick whose
+ * deadline has been reached (other timeouts in the same bucket being due in later rounds of
+ * the wheel). Timeouts are thus expired up to one tick late. Scheduling and cancelling are
+ * lock-free: new timeouts are queued and only put in a bucket by the timer thread, and
+ * cancelled timeouts are only removed from their bucket when the timer thread gets to it.
+ */
+final class HashedWheelTimer {
+
+  static final HashedWheelTimer INSTANCE =
+      new HashedWheelTimer(TimeUnit.MILLISECONDS.toNanos(10), 512);
+
+  static final class Timeout {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long deadline;
+    /** Cleared when cancelled, so it's not retained until the timer thread removes it. */
+    private volatile Runnable task;
+    private volatile int state;
+
+    // Only accessed by the timer thread
+    private long remainingRounds;
+    private Timeout next;
+
+    Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancels the timeout.
+     *
+     * @return {@code false} if the timeout has already expired or been cancelled.
+     */
+    boolean cancel() {
+      if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+        task = null;
+        return true;
+      }
+      return false;
+    }
+
+    boolean isCancelled() {
+      return state == CANCELLED;
+    }
+
+    void expire() {
+      if (!STATE.compareAndSet(this, PENDING, EXPIRED)) {
+        return;
+      }
+      Runnable task = this.task;
+      this.task = null;
+      try {
+        task.run();
+      } catch (Throwable t) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+      }
+    }
+  }
+
+  private final long tickNanos;
+  private final Timeout[] wheel;
+  private final int mask;
+  private final ConcurrentLinkedQueue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean started = new AtomicBoolean();
+
+  HashedWheelTimer(long tickNanos, int ticksPerWheel) {
+    if (Integer.bitCount(ticksPerWheel) != 1) {
+      throw new IllegalArgumentException("ticksPerWheel must be a power of 2: " + ticksPerWheel);
+    }
+    this.tickNanos = tickNanos;
+    this.wheel = new Timeout[ticksPerWheel];
+    this.mask = ticksPerWheel - 1;
+  }
+
+  /**
+   * Schedules the task to be run by the timer thread once the deadline (in terms of
+   * {@link System#nanoTime()}) is reached.
+   */
+  Timeout schedule(Runnable task, long deadline) {
+    Timeout timeout = new Timeout(task, deadline);
+    newTimeouts.add(timeout);
+    if (!started.get() && started.compareAndSet(false, true)) {
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          tick();
+        }
+      }, "promises-timer");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    return timeout;
+  }
+
+  private void tick() {
+    final long startTime = System.nanoTime();
+    for (long tick = 0; ; tick++) {
+      long tickDeadline = startTime + (tick + 1) * tickNanos;
+      for (long now; (now = System.nanoTime()) - tickDeadline < 0; ) {
+        LockSupport.parkNanos(this, tickDeadline - now);
+      }
+      transferNewTimeouts(startTime, tick);
+      expireTimeouts((int) (tick & mask));
+    }
+  }
+
+  private void transferNewTimeouts(long startTime, long currentTick) {
+    for (Timeout timeout; (timeout = newTimeouts.poll()) != null; ) {
+      if (timeout.isCancelled()) {
+        continue;
+      }
+      long ticks = Math.max((timeout.deadline - startTime) / tickNanos, currentTick);
+      timeout.remainingRounds = (ticks - currentTick) / wheel.length;
+      int index = (int) (ticks & mask);
+      timeout.next = wheel[index];
+      wheel[index] = timeout;
+    }
+  }
+
+  private void expireTimeouts(int index) {
+    Timeout remaining = null;
+    for (Timeout timeout = wheel[index]; timeout != null; ) {
+      Timeout next = timeout.next;
+      timeout.next = null;
+      if (timeout.isCancelled()) {
+        // drop it
+      } else if (timeout.remainingRounds <= 0) {
+        timeout.expire();
+      } else {
+        timeout.remainingRounds--;
+        timeout.next = remaining;
+        remaining = timeout;
+      }
+      timeout = next;
+    }
+    wheel[index] = remaining;
+  }
+}
@@ -0,0 +1,48 @@
+package net.ltgt.promises;
+
+import net.ltgt.promises.Promise.DoneCallback;
+
+/**
+ * A callback shared by several promises, that are told apart by an index.
+ * <p>
+ * This allows combinators to register a single callback object on all their inputs, rather
+ * than one {@link DoneCallback} per input.
+ */
+abstract class IndexedCallback<V> {
+
+  /**
+   * Registers the callback on the promise, to be called with the given index.
+   */
+  static <V> void register(Promise<? extends V> promise, IndexedCallback<? super V> callback,
+      int index) {
+    if (promise instanceof FulfillablePromise) {
+      ((FulfillablePromise<? extends V>) promise).done(callback, index);
+    } else {
+      promise.done(new Adapter<V>(callback, index));
+    }
+  }
+
+  abstract void onFulfilled(int index, V value);
+
+  abstract void onRejected(int index, Throwable reason);
+
+  private static final class Adapter<V> extends DoneCallback<V> {
+    private final IndexedCallback<? super V> callback;
+    private final int index;
+
+    Adapter(IndexedCallback<? super V> callback, int index) {
+      this.callback = callback;
+      this.index = index;
+    }
+
+    @Override
+    public void onFulfilled(V value) {
+      callback.onFulfilled(index, value);
+    }
+
+    @Override
+    public void onRejected(Throwable reason) {
+      callback.onRejected(index, reason);
+    }
+  }
+}
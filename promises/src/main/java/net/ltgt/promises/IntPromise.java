@@ -0,0 +1,278 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A promise of an {@code int}, that is explicitly fulfilled or rejected, and whose value is
+ * never boxed, except when bridged to a {@link Promise} through {@link #boxed()}.
+ * <p>
+ * Callbacks are run the same way as for {@link FulfillablePromise}.
+ *
+ * @see LongPromise
+ * @see DoublePromise
+ */
+public final class IntPromise extends PrimitivePromise {
+
+  public abstract static class ImmediateCallback {
+    public abstract int onFulfilled(int value) throws Throwable;
+
+    public int onRejected(Throwable reason) throws Throwable {
+      throw reason;
+    }
+  }
+
+  public abstract static class DoneCallback {
+    public abstract void onFulfilled(int value);
+
+    public void onRejected(Throwable reason) {
+      Promises.propagate(reason);
+    }
+  }
+
+  public static IntPromise create() {
+    return new IntPromise();
+  }
+
+  public static IntPromise fulfilled(int value) {
+    IntPromise promise = new IntPromise();
+    promise.fulfill(value);
+    return promise;
+  }
+
+  public static IntPromise rejected(Throwable reason) {
+    IntPromise promise = new IntPromise();
+    promise.reject(reason);
+    return promise;
+  }
+
+  /**
+   * Returns a promise settled the same way as the given one; it's rejected with a
+   * {@link NullPointerException} if the given promise is fulfilled with {@code null}.
+   */
+  public static IntPromise unbox(Promise<Integer> promise) {
+    final IntPromise ret = new IntPromise();
+    promise.done(new Promise.DoneCallback<Integer>() {
+      @Override
+      public void onFulfilled(Integer value) {
+        if (value == null) {
+          ret.reject(new NullPointerException("promise fulfilled with null"));
+        } else {
+          ret.fulfill(value);
+        }
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  /**
+   * Returns a promise of the values of the given promises, in the same order, once they're all
+   * fulfilled; or rejected as soon as one of them is rejected.
+   *
+   * @see Promises#wait(Collection)
+   */
+  public static Promise<int[]> wait(Collection<IntPromise> promises) {
+    final FulfillablePromise<int[]> ret = FulfillablePromise.create();
+    final int[] values = new int[promises.size()];
+    aggregate(promises, new Aggregator(values.length) {
+      @Override
+      void fulfilled(int index, PrimitivePromise source) {
+        values[index] = ((IntPromise) source).value;
+      }
+
+      @Override
+      void done() {
+        ret.fulfill(values);
+      }
+
+      @Override
+      void rejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  /** Values are summed as longs, which can't overflow with at most 2^31 ints. */
+  private static final LongBinaryOperator SUM = new LongBinaryOperator() {
+    @Override
+    public long applyAsLong(long left, long right) {
+      return left + right;
+    }
+  };
+
+  private static final LongBinaryOperator MIN = new LongBinaryOperator() {
+    @Override
+    public long applyAsLong(long left, long right) {
+      return Math.min(left, right);
+    }
+  };
+
+  private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+    @Override
+    public long applyAsLong(long left, long right) {
+      return Math.max(left, right);
+    }
+  };
+
+  /**
+   * Returns a promise of the sum of the values of the given promises; {@code 0} if there are
+   * none. It's rejected with an {@link ArithmeticException} if the sum overflows.
+   */
+  public static IntPromise sum(Collection<IntPromise> promises) {
+    return reduce(promises, SUM, 0);
+  }
+
+  /**
+   * Returns a promise of the smallest value of the given promises; rejected with a
+   * {@link NoSuchElementException} if there are none.
+   */
+  public static IntPromise min(Collection<IntPromise> promises) {
+    if (promises.isEmpty()) {
+      return rejected(new NoSuchElementException());
+    }
+    return reduce(promises, MIN, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns a promise of the largest value of the given promises; rejected with a
+   * {@link NoSuchElementException} if there are none.
+   */
+  public static IntPromise max(Collection<IntPromise> promises) {
+    if (promises.isEmpty()) {
+      return rejected(new NoSuchElementException());
+    }
+    return reduce(promises, MAX, Integer.MIN_VALUE);
+  }
+
+  private static IntPromise reduce(Collection<IntPromise> promises,
+      final LongBinaryOperator operator, long identity) {
+    final IntPromise ret = new IntPromise();
+    final AtomicLong accumulator = new AtomicLong(identity);
+    aggregate(promises, new Aggregator(promises.size()) {
+      @Override
+      void fulfilled(int index, PrimitivePromise source) {
+        accumulator.accumulateAndGet(((IntPromise) source).value, operator);
+      }
+
+      @Override
+      void done() {
+        int result;
+        try {
+          result = Math.toIntExact(accumulator.get());
+        } catch (ArithmeticException ae) {
+          ret.reject(ae);
+          return;
+        }
+        ret.fulfill(result);
+      }
+
+      @Override
+      void rejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  /** Written before the promise is marked fulfilled, and read after it's been seen as such. */
+  private int value;
+
+  private IntPromise() {}
+
+  /**
+   * Fulfills the promise with the given value.
+   * <p>
+   * This is a no-op if the promise has been cancelled.
+   *
+   * @throws IllegalStateException if the promise has already been settled.
+   */
+  public void fulfill(int value) {
+    if (startCompletion(false)) {
+      this.value = value;
+      finishCompletion(null);
+    }
+  }
+
+  public IntPromise then(final ImmediateCallback callback) {
+    requireNonNull(callback);
+    final IntPromise ret = new IntPromise();
+    if (isPending() && addHandler(new Handler() {
+      @Override
+      void fulfill(PrimitivePromise source) {
+        try {
+          ret.fulfill(callback.onFulfilled(((IntPromise) source).value));
+        } catch (Throwable t) {
+          ret.reject(t);
+        }
+      }
+
+      @Override
+      void reject(Throwable reason) {
+        try {
+          ret.fulfill(callback.onRejected(reason));
+        } catch (Throwable t) {
+          ret.reject(t);
+        }
+      }
+    })) {
+      return ret;
+    }
+    Throwable reason = reason();
+    try {
+      ret.fulfill(reason == null ? callback.onFulfilled(value) : callback.onRejected(reason));
+    } catch (Throwable t) {
+      ret.reject(t);
+    }
+    return ret;
+  }
+
+  public void done(final DoneCallback callback) {
+    requireNonNull(callback);
+    if (isPending() && addHandler(new Handler() {
+      @Override
+      void fulfill(PrimitivePromise source) {
+        callback.onFulfilled(((IntPromise) source).value);
+      }
+
+      @Override
+      void reject(Throwable reason) {
+        callback.onRejected(reason);
+      }
+    })) {
+      return;
+    }
+    Throwable reason = reason();
+    if (reason == null) {
+      callback.onFulfilled(value);
+    } else {
+      callback.onRejected(reason);
+    }
+  }
+
+  /** Returns a {@link Promise} settled the same way as this promise, with the value boxed. */
+  public Promise<Integer> boxed() {
+    final FulfillablePromise<Integer> ret = FulfillablePromise.create();
+    done(new DoneCallback() {
+      @Override
+      public void onFulfilled(int value) {
+        ret.fulfill(value);
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+}
@@ -0,0 +1,313 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A promise of a {@code long}, that is explicitly fulfilled or rejected, and whose value is
+ * never boxed, except when bridged to a {@link Promise} through {@link #boxed()}.
+ * <p>
+ * Callbacks are run the same way as for {@link FulfillablePromise}.
+ *
+ * @see IntPromise
+ * @see DoublePromise
+ */
+public final class LongPromise extends PrimitivePromise {
+
+  public abstract static class ImmediateCallback {
+    public abstract long onFulfilled(long value) throws Throwable;
+
+    public long onRejected(Throwable reason) throws Throwable {
+      throw reason;
+    }
+  }
+
+  public abstract static class DoneCallback {
+    public abstract void onFulfilled(long value);
+
+    public void onRejected(Throwable reason) {
+      Promises.propagate(reason);
+    }
+  }
+
+  public static LongPromise create() {
+    return new LongPromise();
+  }
+
+  public static LongPromise fulfilled(long value) {
+    LongPromise promise = new LongPromise();
+    promise.fulfill(value);
+    return promise;
+  }
+
+  public static LongPromise rejected(Throwable reason) {
+    LongPromise promise = new LongPromise();
+    promise.reject(reason);
+    return promise;
+  }
+
+  /**
+   * Returns a promise settled the same way as the given one; it's rejected with a
+   * {@link NullPointerException} if the given promise is fulfilled with {@code null}.
+   */
+  public static LongPromise unbox(Promise<Long> promise) {
+    final LongPromise ret = new LongPromise();
+    promise.done(new Promise.DoneCallback<Long>() {
+      @Override
+      public void onFulfilled(Long value) {
+        if (value == null) {
+          ret.reject(new NullPointerException("promise fulfilled with null"));
+        } else {
+          ret.fulfill(value);
+        }
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  /**
+   * Returns a promise of the values of the given promises, in the same order, once they're all
+   * fulfilled; or rejected as soon as one of them is rejected.
+   *
+   * @see Promises#wait(Collection)
+   */
+  public static Promise<long[]> wait(Collection<LongPromise> promises) {
+    final FulfillablePromise<long[]> ret = FulfillablePromise.create();
+    final long[] values = new long[promises.size()];
+    aggregate(promises, new Aggregator(values.length) {
+      @Override
+      void fulfilled(int index, PrimitivePromise source) {
+        values[index] = ((LongPromise) source).value;
+      }
+
+      @Override
+      void done() {
+        ret.fulfill(values);
+      }
+
+      @Override
+      void rejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  private static final LongBinaryOperator MIN = new LongBinaryOperator() {
+    @Override
+    public long applyAsLong(long left, long right) {
+      return Math.min(left, right);
+    }
+  };
+
+  private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+    @Override
+    public long applyAsLong(long left, long right) {
+      return Math.max(left, right);
+    }
+  };
+
+  /**
+   * Returns a promise of the sum of the values of the given promises; {@code 0} if there are
+   * none. It's rejected with an {@link ArithmeticException} if the sum overflows; intermediate
+   * sums can overflow though, so that the outcome doesn't depend on the order the promises are
+   * fulfilled in.
+   */
+  public static LongPromise sum(Collection<LongPromise> promises) {
+    final LongPromise ret = new LongPromise();
+    final Sum sum = new Sum();
+    aggregate(promises, new Aggregator(promises.size()) {
+      @Override
+      void fulfilled(int index, PrimitivePromise source) {
+        sum.add(((LongPromise) source).value);
+      }
+
+      @Override
+      void done() {
+        long result;
+        try {
+          result = sum.get();
+        } catch (ArithmeticException ae) {
+          ret.reject(ae);
+          return;
+        }
+        ret.fulfill(result);
+      }
+
+      @Override
+      void rejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  /**
+   * A 128-bit sum, that can't overflow with at most 2^31 values, and is only checked to fit in
+   * a {@code long} at the end.
+   */
+  private static final class Sum {
+    private long low;
+    private long high;
+
+    synchronized void add(long value) {
+      long sum = low + value;
+      // sign extension of the value, plus the carry out of the unsigned addition of low words
+      high += (value >> 63) + (Long.compareUnsigned(sum, low) < 0 ? 1 : 0);
+      low = sum;
+    }
+
+    synchronized long get() {
+      if (high != (low >> 63)) {
+        throw new ArithmeticException("long overflow");
+      }
+      return low;
+    }
+  }
+
+  /**
+   * Returns a promise of the smallest value of the given promises; rejected with a
+   * {@link NoSuchElementException} if there are none.
+   */
+  public static LongPromise min(Collection<LongPromise> promises) {
+    if (promises.isEmpty()) {
+      return rejected(new NoSuchElementException());
+    }
+    return reduce(promises, MIN, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns a promise of the largest value of the given promises; rejected with a
+   * {@link NoSuchElementException} if there are none.
+   */
+  public static LongPromise max(Collection<LongPromise> promises) {
+    if (promises.isEmpty()) {
+      return rejected(new NoSuchElementException());
+    }
+    return reduce(promises, MAX, Long.MIN_VALUE);
+  }
+
+  private static LongPromise reduce(Collection<LongPromise> promises,
+      final LongBinaryOperator operator, long identity) {
+    final LongPromise ret = new LongPromise();
+    final AtomicLong accumulator = new AtomicLong(identity);
+    aggregate(promises, new Aggregator(promises.size()) {
+      @Override
+      void fulfilled(int index, PrimitivePromise source) {
+        accumulator.accumulateAndGet(((LongPromise) source).value, operator);
+      }
+
+      @Override
+      void done() {
+        ret.fulfill(accumulator.get());
+      }
+
+      @Override
+      void rejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+
+  /** Written before the promise is marked fulfilled, and read after it's been seen as such. */
+  private long value;
+
+  private LongPromise() {}
+
+  /**
+   * Fulfills the promise with the given value.
+   * <p>
+   * This is a no-op if the promise has been cancelled.
+   *
+   * @throws IllegalStateException if the promise has already been settled.
+   */
+  public void fulfill(long value) {
+    if (startCompletion(false)) {
+      this.value = value;
+      finishCompletion(null);
+    }
+  }
+
+  public LongPromise then(final ImmediateCallback callback) {
+    requireNonNull(callback);
+    final LongPromise ret = new LongPromise();
+    if (isPending() && addHandler(new Handler() {
+      @Override
+      void fulfill(PrimitivePromise source) {
+        try {
+          ret.fulfill(callback.onFulfilled(((LongPromise) source).value));
+        } catch (Throwable t) {
+          ret.reject(t);
+        }
+      }
+
+      @Override
+      void reject(Throwable reason) {
+        try {
+          ret.fulfill(callback.onRejected(reason));
+        } catch (Throwable t) {
+          ret.reject(t);
+        }
+      }
+    })) {
+      return ret;
+    }
+    Throwable reason = reason();
+    try {
+      ret.fulfill(reason == null ? callback.onFulfilled(value) : callback.onRejected(reason));
+    } catch (Throwable t) {
+      ret.reject(t);
+    }
+    return ret;
+  }
+
+  public void done(final DoneCallback callback) {
+    requireNonNull(callback);
+    if (isPending() && addHandler(new Handler() {
+      @Override
+      void fulfill(PrimitivePromise source) {
+        callback.onFulfilled(((LongPromise) source).value);
+      }
+
+      @Override
+      void reject(Throwable reason) {
+        callback.onRejected(reason);
+      }
+    })) {
+      return;
+    }
+    Throwable reason = reason();
+    if (reason == null) {
+      callback.onFulfilled(value);
+    } else {
+      callback.onRejected(reason);
+    }
+  }
+
+  /** Returns a {@link Promise} settled the same way as this promise, with the value boxed. */
+  public Promise<Long> boxed() {
+    final FulfillablePromise<Long> ret = FulfillablePromise.create();
+    done(new DoneCallback() {
+      @Override
+      public void onFulfilled(long value) {
+        ret.fulfill(value);
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        ret.reject(reason);
+      }
+    });
+    return ret;
+  }
+}
@@ -0,0 +1,284 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import javax.annotation.Nullable;
+
+/**
+ * Base class of {@link IntPromise}, {@link LongPromise} and {@link DoublePromise}, that hold
+ * their value in a primitive field rather than boxing it.
+ * <p>
+ * Like {@link FulfillablePromise}, the state of the promise is held in a single
+ * atomically-updated field, that is either the top of a stack of handlers (while pending) or the
+ * outcome of the promise (once settled). To fulfill the promise, the stack is first swapped for
+ * a transient "completing" marker, then the value is written, and only then is the state set to
+ * "fulfilled"; threads that see the promise completing wait for it to be settled, which only
+ * takes a few instructions (this is what {@link java.util.concurrent.FutureTask} does too).
+ * <p>
+ * Unlike {@link FulfillablePromise}, cancellation is not propagated upstream.
+ */
+abstract class PrimitivePromise {
+
+  private static final Object COMPLETING = new Object();
+  private static final Object FULFILLED = new Object();
+
+  private static final class Rejection {
+    final Throwable reason;
+
+    Rejection(Throwable reason) {
+      this.reason = reason;
+    }
+  }
+
+  abstract static class Handler {
+    Handler next;
+
+    /** Called with the fulfilled promise, whose value can be read by the handler. */
+    abstract void fulfill(PrimitivePromise source);
+
+    abstract void reject(Throwable reason);
+  }
+
+  private static final AtomicReferenceFieldUpdater<PrimitivePromise, Object> STATE =
+      AtomicReferenceFieldUpdater.newUpdater(PrimitivePromise.class, Object.class, "state");
+
+  /**
+   * A {@link Handler} (or {@code null}) while pending, {@link #COMPLETING} while being
+   * fulfilled, then {@link #FULFILLED} or a {@link Rejection}.
+   */
+  private volatile Object state;
+
+  /** The handlers detached by {@link #startCompletion}; only accessed by the completing thread. */
+  private Handler detached;
+
+  PrimitivePromise() {}
+
+  /**
+   * Rejects the promise with the given reason.
+   * <p>
+   * Callbacks are run the same way as for {@link FulfillablePromise#reject(Throwable)}.
+   * <p>
+   * This is a no-op if the promise has been cancelled.
+   *
+   * @throws IllegalStateException if the promise has already been settled.
+   */
+  public final void reject(Throwable reason) {
+    requireNonNull(reason);
+    if (startCompletion(reason instanceof CancellationException)) {
+      finishCompletion(reason);
+    }
+  }
+
+  /**
+   * Cancels the promise, if still pending, by rejecting it with a
+   * {@link CancellationException}.
+   */
+  public final boolean cancel() {
+    return startCompletion(true) && finishCompletion(new CancellationException());
+  }
+
+  /**
+   * Detaches the handlers; the caller then writes the value, if any, and calls
+   * {@link #finishCompletion}.
+   *
+   * @return {@code false} if the promise was already settled, and either it was cancelled or
+   *         this is a cancellation.
+   * @throws IllegalStateException if the promise was already settled otherwise.
+   */
+  final boolean startCompletion(boolean cancellation) {
+    for (;;) {
+      Object s = settledOrPending();
+      if (s == FULFILLED || s instanceof Rejection) {
+        if (cancellation || isCancellation(s)) {
+          return false;
+        }
+        throw new IllegalStateException();
+      }
+      if (STATE.compareAndSet(this, s, COMPLETING)) {
+        detached = (Handler) s;
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Settles the promise, fulfilled if {@code reason} is {@code null}, and runs its handlers.
+   */
+  final boolean finishCompletion(@Nullable Throwable reason) {
+    Handler s = detached;
+    detached = null;
+    state = reason == null ? FULFILLED : new Rejection(reason);
+
+    // reverse the stack so handlers are run in the order they were registered.
+    Handler handlers = null;
+    for (Handler h = s; h != null; ) {
+      Handler next = h.next;
+      h.next = handlers;
+      handlers = h;
+      h = next;
+    }
+    if (handlers != null) {
+      Trampoline.execute(new RunHandlers(this, handlers));
+    }
+    return true;
+  }
+
+  /** Runs the detached handlers of a settled promise. */
+  private static final class RunHandlers implements Runnable {
+    private final PrimitivePromise promise;
+    private final Handler handlers;
+
+    RunHandlers(PrimitivePromise promise, Handler handlers) {
+      this.promise = promise;
+      this.handlers = handlers;
+    }
+
+    @Override
+    public void run() {
+      Throwable reason = promise.reason();
+      for (Handler handler = handlers; handler != null; handler = handler.next) {
+        if (reason != null) {
+          handler.reject(reason);
+        } else {
+          handler.fulfill(promise);
+        }
+      }
+    }
+  }
+
+  /** Returns the state, waiting for the promise to be settled if it's being completed. */
+  private Object settledOrPending() {
+    Object s;
+    while ((s = state) == COMPLETING) {
+      Thread.yield();
+    }
+    return s;
+  }
+
+  private static boolean isCancellation(Object s) {
+    return s instanceof Rejection && ((Rejection) s).reason instanceof CancellationException;
+  }
+
+  /**
+   * Returns whether the promise is pending; if not, the handlers of the promise have already
+   * been detached, and callbacks must be run directly.
+   */
+  final boolean isPending() {
+    Object s = state;
+    return s != COMPLETING && s != FULFILLED && !(s instanceof Rejection);
+  }
+
+  /**
+   * Returns the reason the promise has been rejected with, or {@code null} if it's been
+   * fulfilled. Must only be called once the promise is no longer {@link #isPending() pending}.
+   */
+  @Nullable
+  final Throwable reason() {
+    Object s = settledOrPending();
+    return s instanceof Rejection ? ((Rejection) s).reason : null;
+  }
+
+  /**
+   * Pushes the handler onto the stack, unless the promise has been settled.
+   *
+   * @return {@code false} if the promise has already been settled, in which case the handler
+   *         hasn't been registered.
+   */
+  final boolean addHandler(Handler handler) {
+    for (;;) {
+      Object s = state;
+      if (s == COMPLETING || s == FULFILLED || s instanceof Rejection) {
+        return false;
+      }
+      handler.next = (Handler) s;
+      if (STATE.compareAndSet(this, s, handler)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Combines the values of several promises, once they're all fulfilled, or rejects as soon
+   * as one of them is rejected.
+   */
+  abstract static class Aggregator {
+    private final AtomicInteger remaining;
+
+    Aggregator(int count) {
+      this.remaining = new AtomicInteger(count);
+    }
+
+    /** Called with each fulfilled promise, possibly concurrently. */
+    abstract void fulfilled(int index, PrimitivePromise source) throws Throwable;
+
+    /** Called once, when all the promises have been fulfilled. */
+    abstract void done();
+
+    /** Called at most once, instead of {@link #done()}. */
+    abstract void rejected(Throwable reason);
+
+    final void arrive(int index, PrimitivePromise source) {
+      try {
+        fulfilled(index, source);
+      } catch (Throwable t) {
+        reject(t);
+        return;
+      }
+      if (remaining.decrementAndGet() == 0) {
+        done();
+      }
+    }
+
+    final void reject(Throwable reason) {
+      // the counter never gets back to 0 afterwards
+      if (remaining.getAndSet(-1) > 0) {
+        rejected(reason);
+      }
+    }
+  }
+
+  private static final class IndexedHandler extends Handler {
+    private final Aggregator aggregator;
+    private final int index;
+
+    IndexedHandler(Aggregator aggregator, int index) {
+      this.aggregator = aggregator;
+      this.index = index;
+    }
+
+    @Override
+    void fulfill(PrimitivePromise source) {
+      aggregator.arrive(index, source);
+    }
+
+    @Override
+    void reject(Throwable reason) {
+      aggregator.reject(reason);
+    }
+  }
+
+  /** Passes the given promises to the aggregator, which must expect as many of them. */
+  static void aggregate(Collection<? extends PrimitivePromise> promises, Aggregator aggregator) {
+    if (promises.isEmpty()) {
+      aggregator.done();
+      return;
+    }
+    int index = 0;
+    for (PrimitivePromise promise : promises) {
+      if (!promise.isPending() || !promise.addHandler(new IndexedHandler(aggregator, index))) {
+        Throwable reason = promise.reason();
+        if (reason != null) {
+          aggregator.reject(reason);
+        } else {
+          aggregator.arrive(index, promise);
+        }
+      }
+      index++;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package net.ltgt.promises;
+
+import java.util.concurrent.Executor;
+
+import javax.annotation.Nullable;
+
+/**
+ * A promise represents a value that may not be available yet.
+ * <p>
+ * A promise must be in one of three states: pending, fulfilled, or rejected.
+ * <dl>
+ * <dt>When in pending, a promise:</dt>
+ * <dd>may transition to either the fulfilled or rejected state.</dd>
+ * 
+ * <dt>When in fulfilled, a promise:</dt>
+ * <dd>must not transition to any other state.</dd>
+ * <dd>must have a value, which must not change.</dd>
+ * 
+ * <dt>When in rejected, a promise:</dt>
+ * <dd>must not transition to any other state.</dd>
+ * <dd>must have a reason, which must not change.</dd>
+ * </dl>
+ * 
+ * @param <V> type of the promised value
+ */
+public interface Promise<V> {
+
+  abstract class Callback<V, R> {
+    public abstract Promise<R> onFulfilled(@Nullable V value);
+
+    public Promise<R> onRejected(Throwable reason) {
+      return Promises.rejected(reason);
+    }
+  }
+
+  abstract class ImmediateCallback<V, R> {
+    public abstract R onFulfilled(@Nullable V value) throws Throwable;
+
+    public R onRejected(Throwable reason) throws Throwable {
+      throw reason;
+    }
+  }
+
+  abstract class DoneCallback<V> {
+    public abstract void onFulfilled(@Nullable V value);
+
+    public void onRejected(Throwable reason) {
+      Promises.propagate(reason);
+    }
+  }
+
+  <R> Promise<R> then(Callback<? super V, R> callback);
+
+  <R> Promise<R> then(ImmediateCallback<? super V, R> callback);
+
+  void done(DoneCallback<? super V> callback);
+
+  void done();
+
+  /**
+   * Same as {@link #then(Callback)} but the callback is run by the given executor.
+   * <p>
+   * The callback is run directly, without going through the executor, if the promise is
+   * settled (or already settled) from a callback that the same executor is running.
+   */
+  default <R> Promise<R> then(Callback<? super V, R> callback, Executor executor) {
+    return then(AsyncCallbacks.<V, R>async(callback, executor));
+  }
+
+  /**
+   * Same as {@link #then(ImmediateCallback)} but the callback is run by the given executor.
+   *
+   * @see #then(Callback, Executor)
+   */
+  default <R> Promise<R> then(ImmediateCallback<? super V, R> callback, Executor executor) {
+    return then(AsyncCallbacks.<V, R>async(callback, executor));
+  }
+
+  /**
+   * Same as {@link #done(DoneCallback)} but the callback is run by the given executor.
+   *
+   * @see #then(Callback, Executor)
+   */
+  default void done(DoneCallback<? super V> callback, Executor executor) {
+    done(AsyncCallbacks.<V>async(callback, executor));
+  }
+
+  /**
+   * Cancels the promise, if it's still pending.
+   * <p>
+   * A cancelled promise is rejected with a {@link java.util.concurrent.CancellationException},
+   * that is then seen by the promises derived from it. Implementations should also propagate
+   * the cancellation upstream, to the promise or computation the promise is waiting on, when no
+   * other promise depends on it.
+   *
+   * @return {@code false} if the promise could not be cancelled, typically because it has
+   *         already been settled, or because it doesn't support cancellation (the default).
+   */
+  default boolean cancel() {
+    return false;
+  }
+}
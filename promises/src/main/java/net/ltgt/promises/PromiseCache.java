@@ -0,0 +1,392 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.annotation.Nullable;
+
+import net.ltgt.promises.Promise.DoneCallback;
+
+/**
+ * Memoizes the promises returned by a loader.
+ * <p>
+ * Concurrent callers for the same key share a single call to the loader (single-flight); each
+ * of them gets its own promise, settled the same way as the shared one, so that the call is only
+ * cancelled once all of them have been cancelled. Once fulfilled, the value is cached as a
+ * {@link Promises#fulfilled(Object) fulfilled promise}, that is returned as-is to subsequent
+ * callers: callbacks registered on a cache hit run synchronously, without any locking.
+ * Rejections are evicted immediately, unless {@link Builder#cacheRejectionsFor negative
+ * caching} is enabled (cancellations are never cached).
+ * <p>
+ * Entries can expire a given time after they've been loaded, and the number of entries can be
+ * bounded, in which case entries are evicted following the CLOCK algorithm (an approximation of
+ * LRU): entries are queued in the order they were loaded, and the entry at the head of the
+ * queue is evicted unless it's been read since it was last considered, in which case it's
+ * given a second chance and queued again. Reads only ever set a flag, they never contend.
+ * Expired entries are also swept when loads complete, at most once per time to live.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public final class PromiseCache<K, V> {
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static final class Builder {
+    private long maximumSize = -1;
+    private long expireAfterWriteNanos = -1;
+    private long rejectionTtlNanos = 0;
+    private LongSupplier ticker = SYSTEM_TICKER;
+
+    private Builder() {}
+
+    /** Bounds the number of entries, pending loads included. */
+    public Builder maximumSize(long maximumSize) {
+      if (maximumSize < 1) {
+        throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+      }
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /** Expires values the given time after they've been loaded. */
+    public Builder expireAfterWrite(Duration duration) {
+      this.expireAfterWriteNanos = positiveNanos(duration);
+      return this;
+    }
+
+    /**
+     * Keeps rejections for the given time, rather than evicting them immediately, so that a
+     * failing backend isn't called again for each request.
+     */
+    public Builder cacheRejectionsFor(Duration duration) {
+      this.rejectionTtlNanos = positiveNanos(duration);
+      return this;
+    }
+
+    /** This is a hook for tests. */
+    Builder ticker(LongSupplier ticker) {
+      this.ticker = requireNonNull(ticker);
+      return this;
+    }
+
+    public <K, V> PromiseCache<K, V> build() {
+      return new PromiseCache<>(this);
+    }
+
+    private static long positiveNanos(Duration duration) {
+      long nanos = duration.toNanos();
+      if (nanos <= 0) {
+        throw new IllegalArgumentException("duration must be positive: " + duration);
+      }
+      return nanos;
+    }
+  }
+
+  private static final LongSupplier SYSTEM_TICKER = new LongSupplier() {
+    @Override
+    public long getAsLong() {
+      return System.nanoTime();
+    }
+  };
+
+  private static final class Entry<K, V> {
+    final K key;
+    /** A {@link FulfillablePromise} while loading, a settled promise afterwards. */
+    final Promise<V> promise;
+    final boolean loading;
+    /** In terms of the ticker; only meaningful if {@link #expires}. */
+    final long expiresAt;
+    final boolean expires;
+    /** Whether the entry has been read since it was last considered for eviction. */
+    volatile boolean accessed;
+    /** The loader call, while loading; set before the first caller gets its promise. */
+    volatile Promise<? extends V> call;
+    /** Callers sharing the load that haven't cancelled; guarded by {@code this}. */
+    private int requests = 1;
+    /** Whether all callers have cancelled; guarded by {@code this}. */
+    private boolean abandoned;
+
+    /** Creates a loading entry. */
+    Entry(K key, FulfillablePromise<V> promise) {
+      this.key = key;
+      this.promise = promise;
+      this.loading = true;
+      this.expiresAt = 0;
+      this.expires = false;
+    }
+
+    /** Creates a settled entry. */
+    Entry(K key, Promise<V> promise, long now, long ttlNanos) {
+      this.key = key;
+      this.promise = promise;
+      this.loading = false;
+      this.expiresAt = now + ttlNanos;
+      this.expires = ttlNanos > 0;
+    }
+
+    boolean isExpired(LongSupplier ticker) {
+      return expires && ticker.getAsLong() - expiresAt >= 0;
+    }
+
+    /** Counts a new caller of a loading entry, unless the load has been abandoned. */
+    synchronized boolean join() {
+      if (abandoned) {
+        return false;
+      }
+      requests++;
+      return true;
+    }
+
+    /** Returns whether this was the last caller, in which case the load is abandoned. */
+    synchronized boolean leave() {
+      if (--requests > 0) {
+        return false;
+      }
+      abandoned = true;
+      return true;
+    }
+  }
+
+  private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+  /** The CLOCK queue; {@code null} if the cache isn't bounded. May contain stale entries. */
+  private final Queue<Entry<K, V>> queue;
+  /** Size of the queue, which {@link ConcurrentLinkedQueue} doesn't know in constant time. */
+  private final AtomicInteger queued = new AtomicInteger();
+  private final long maximumSize;
+  private final long expireAfterWriteNanos;
+  private final long rejectionTtlNanos;
+  private final LongSupplier ticker;
+  /** The shortest time to live, or {@code 0} if entries never expire. */
+  private final long sweepIntervalNanos;
+  /** In terms of the ticker. */
+  private final AtomicLong nextSweep;
+
+  private PromiseCache(Builder builder) {
+    this.maximumSize = builder.maximumSize;
+    this.queue = maximumSize > 0 ? new ConcurrentLinkedQueue<Entry<K, V>>() : null;
+    this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+    this.rejectionTtlNanos = builder.rejectionTtlNanos;
+    this.ticker = builder.ticker;
+    long interval = expireAfterWriteNanos > 0 ? expireAfterWriteNanos : 0;
+    if (rejectionTtlNanos > 0 && (interval == 0 || rejectionTtlNanos < interval)) {
+      interval = rejectionTtlNanos;
+    }
+    this.sweepIntervalNanos = interval;
+    this.nextSweep = new AtomicLong(interval > 0 ? ticker.getAsLong() + interval : 0);
+  }
+
+  /**
+   * Returns the cached promise for the given key, calling the loader if there's none (or it
+   * has expired) and no other call for that key is in flight.
+   */
+  public Promise<V> get(K key, Function<? super K, ? extends Promise<? extends V>> loader) {
+    requireNonNull(key);
+    requireNonNull(loader);
+    for (;;) {
+      Entry<K, V> entry = entries.get(key);
+      if (entry == null) {
+        FulfillablePromise<V> promise = FulfillablePromise.create();
+        entry = new Entry<>(key, promise);
+        if (entries.putIfAbsent(key, entry) != null) {
+          continue;
+        }
+        enqueue(entry);
+        load(entry, loader);
+        return request(entry);
+      }
+      if (entry.loading) {
+        if (entry.join()) {
+          return request(entry);
+        }
+        // all its callers have just cancelled the load, make a new one
+        entries.remove(key, entry);
+        continue;
+      }
+      if (entry.isExpired(ticker)) {
+        entries.remove(key, entry);
+        continue;
+      }
+      if (!entry.accessed) {
+        entry.accessed = true;
+      }
+      return entry.promise;
+    }
+  }
+
+  /** Returns the cached promise for the given key if it's settled and hasn't expired. */
+  @Nullable
+  public Promise<V> getIfPresent(K key) {
+    Entry<K, V> entry = entries.get(key);
+    if (entry == null || entry.loading || entry.isExpired(ticker)) {
+      return null;
+    }
+    if (!entry.accessed) {
+      entry.accessed = true;
+    }
+    return entry.promise;
+  }
+
+  /** Evicts the entry for the given key; a load in flight isn't cancelled but won't be cached. */
+  public void invalidate(K key) {
+    entries.remove(key);
+  }
+
+  public void invalidateAll() {
+    entries.clear();
+  }
+
+  /** Returns the number of entries, pending loads and expired entries included. */
+  public int size() {
+    return entries.size();
+  }
+
+  private void load(final Entry<K, V> loading,
+      Function<? super K, ? extends Promise<? extends V>> loader) {
+    final FulfillablePromise<V> promise = (FulfillablePromise<V>) loading.promise;
+    Promise<? extends V> loaded;
+    try {
+      loaded = requireNonNull(loader.apply(loading.key));
+    } catch (Throwable t) {
+      loaded = Promises.rejected(t);
+    }
+    loading.call = loaded;
+    loaded.done(new DoneCallback<V>() {
+      @Override
+      public void onFulfilled(V value) {
+        settle(loading, Promises.fulfilled(value), expireAfterWriteNanos);
+        promise.fulfill(value);
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        if (rejectionTtlNanos > 0 && !(reason instanceof CancellationException)) {
+          settle(loading, Promises.<V>rejected(reason), rejectionTtlNanos);
+        } else {
+          entries.remove(loading.key, loading);
+        }
+        promise.reject(reason);
+      }
+    });
+  }
+
+  /**
+   * Returns a promise for a caller counted by the loading entry, that leaves it when cancelled.
+   * <p>
+   * Callers are counted by the entry rather than through the interest of promises derived from
+   * the shared one, so that a caller can't join a load that the last other caller is
+   * concurrently cancelling.
+   */
+  private Promise<V> request(final Entry<K, V> loading) {
+    final FulfillablePromise<V> request = FulfillablePromise.create();
+    request.propagateCancellationTo(new ForwardingPromise<V>() {
+      @Override
+      protected Promise<V> getDelegate() {
+        return loading.promise;
+      }
+
+      @Override
+      public boolean cancel() {
+        if (loading.leave()) {
+          // evict the entry whether or not the call honors the cancellation, so the next get()
+          // makes a new call
+          entries.remove(loading.key, loading);
+          loading.call.cancel();
+        }
+        return true;
+      }
+    });
+    loading.promise.done(new DoneCallback<V>() {
+      @Override
+      public void onFulfilled(V value) {
+        request.fulfill(value);
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        request.reject(reason);
+      }
+    });
+    return request;
+  }
+
+  private void settle(Entry<K, V> loading, Promise<V> settled, long ttlNanos) {
+    long now = ttlNanos > 0 || sweepIntervalNanos > 0 ? ticker.getAsLong() : 0;
+    Entry<K, V> entry = new Entry<>(loading.key, settled, now, ttlNanos);
+    if (entries.replace(loading.key, loading, entry)) {
+      enqueue(entry);
+    }
+    if (sweepIntervalNanos > 0) {
+      sweep(now);
+    }
+  }
+
+  /**
+   * Removes expired entries, at most once per interval; otherwise entries that expire would
+   * only be removed when their key is read again (or evicted, if the cache is bounded).
+   * <p>
+   * This walks all the entries, but only once per interval, by a single thread.
+   */
+  private void sweep(long now) {
+    long next = nextSweep.get();
+    if (now - next < 0 || !nextSweep.compareAndSet(next, now + sweepIntervalNanos)) {
+      return;
+    }
+    for (Entry<K, V> entry : entries.values()) {
+      if (entry.expires && now - entry.expiresAt >= 0) {
+        entries.remove(entry.key, entry);
+      }
+    }
+  }
+
+  private void enqueue(Entry<K, V> entry) {
+    if (queue == null) {
+      return;
+    }
+    queue.offer(entry);
+    queued.incrementAndGet();
+    evict();
+  }
+
+  /**
+   * Evicts entries until the cache fits its maximum size, also dropping stale queued entries
+   * (replaced or removed from the cache) if they make up most of the queue.
+   * <p>
+   * Loading entries are never evicted (that would break single-flight), so this gives up after
+   * going around the queue twice.
+   */
+  private void evict() {
+    int budget = 2 * queued.get();
+    while (budget-- > 0
+        && (entries.size() > maximumSize || queued.get() > 2 * maximumSize)) {
+      Entry<K, V> entry = queue.poll();
+      if (entry == null) {
+        return;
+      }
+      queued.decrementAndGet();
+      if (entries.get(entry.key) != entry) {
+        // stale
+        continue;
+      }
+      if (entry.loading || (entry.accessed && !entry.isExpired(ticker))) {
+        entry.accessed = false;
+        queue.offer(entry);
+        queued.incrementAndGet();
+        continue;
+      }
+      entries.remove(entry.key, entry);
+    }
+  }
+}
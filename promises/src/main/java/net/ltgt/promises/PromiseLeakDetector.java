@@ -0,0 +1,210 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+
+/**
+ * Detects {@link FulfillablePromise}s that are garbage collected while still pending (their
+ * callbacks will never be called), or after having been rejected without anyone registering a
+ * callback (the rejection is lost).
+ * <p>
+ * Promises are sampled when created, and tracked through a {@link PhantomReference}; leaks are
+ * reported when other promises are sampled, so reports can be delayed. At the
+ * {@link Detection#SIMPLE SIMPLE} level, which is cheap enough for production, about one
+ * promise every {@code net.ltgt.promises.leakDetection.samplingInterval} (128 by default) is
+ * tracked; at the {@link Detection#ADVANCED ADVANCED} level, the stack trace where the promise
+ * was created is also recorded; and at the {@link Detection#PARANOID PARANOID} level, every
+ * promise is tracked with its stack trace, which is only suitable for tests.
+ * <p>
+ * The initial level is read from the {@code net.ltgt.promises.leakDetection.level} system
+ * property, and defaults to {@link Detection#DISABLED DISABLED}. Leaks are logged to the
+ * {@code net.ltgt.promises.PromiseLeakDetector} {@link Logger} unless another
+ * {@link Listener} is {@link #setListener installed}.
+ * <p>
+ * Promises derived from an unsettled promise are also reported as unsettled when the whole
+ * chain is garbage collected.
+ */
+public final class PromiseLeakDetector {
+
+  public enum Detection {
+    DISABLED,
+    /** Tracks a sample of the promises. */
+    SIMPLE,
+    /** Tracks a sample of the promises, recording where they were created. */
+    ADVANCED,
+    /** Tracks all promises, recording where they were created. */
+    PARANOID,
+  }
+
+  /** Receives leak reports. Methods are called synchronously, and must not throw. */
+  public interface Listener {
+
+    /**
+     * Called when a promise is garbage collected while still pending.
+     *
+     * @param allocation where the promise was created, or {@code null} if not recorded.
+     */
+    void onUnsettled(@Nullable Throwable allocation);
+
+    /**
+     * Called when a rejected promise is garbage collected without any callback having been
+     * registered on it.
+     *
+     * @param allocation where the promise was created, or {@code null} if not recorded.
+     */
+    void onUnobservedRejection(Throwable reason, @Nullable Throwable allocation);
+  }
+
+  private static final Logger LOGGER = Logger.getLogger(PromiseLeakDetector.class.getName());
+
+  private static final Listener LOGGING = new Listener() {
+    @Override
+    public void onUnsettled(@Nullable Throwable allocation) {
+      LOGGER.log(Level.SEVERE, "A promise was garbage collected before being settled."
+          + (allocation == null ? HINT : ""), allocation);
+    }
+
+    @Override
+    public void onUnobservedRejection(Throwable reason, @Nullable Throwable allocation) {
+      String message = "A promise was garbage collected after being rejected, without its "
+          + "rejection being observed.";
+      if (allocation == null) {
+        message += HINT;
+      } else {
+        StringWriter sw = new StringWriter();
+        allocation.printStackTrace(new PrintWriter(sw));
+        message += " " + sw;
+      }
+      LOGGER.log(Level.SEVERE, message, reason);
+    }
+  };
+
+  private static final String HINT = " Set the net.ltgt.promises.leakDetection.level system "
+      + "property to ADVANCED to record where leaked promises are created.";
+
+  private static final int SAMPLING_INTERVAL =
+      Math.max(1, Integer.getInteger("net.ltgt.promises.leakDetection.samplingInterval", 128));
+
+  private static volatile Detection level = initialLevel();
+  private static volatile Listener listener = LOGGING;
+
+  private static final Set<Leak> LIVE = ConcurrentHashMap.newKeySet();
+  private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+
+  private static Detection initialLevel() {
+    String level = System.getProperty("net.ltgt.promises.leakDetection.level");
+    if (level != null) {
+      try {
+        return Detection.valueOf(level.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException iae) {
+        LOGGER.warning("Unknown leak detection level: " + level);
+      }
+    }
+    return Detection.DISABLED;
+  }
+
+  private PromiseLeakDetector() {
+    // non-instantiable
+  }
+
+  public static Detection getLevel() {
+    return level;
+  }
+
+  /** Changes the level; promises already tracked stay tracked. */
+  public static void setLevel(Detection level) {
+    PromiseLeakDetector.level = requireNonNull(level);
+  }
+
+  /** Installs the given listener; {@code null} to restore the default, logging, one. */
+  public static void setListener(@Nullable Listener listener) {
+    PromiseLeakDetector.listener = listener == null ? LOGGING : listener;
+  }
+
+  /** Returns whether the promise being created should be tracked. */
+  static boolean sample() {
+    Detection level = PromiseLeakDetector.level;
+    return level != Detection.DISABLED
+        && (level == Detection.PARANOID
+            || ThreadLocalRandom.current().nextInt(SAMPLING_INTERVAL) == 0);
+  }
+
+  static Leak track(Object promise) {
+    poll();
+    Leak leak = new Leak(promise,
+        level.compareTo(Detection.ADVANCED) >= 0 ? new AllocationTrace() : null);
+    LIVE.add(leak);
+    return leak;
+  }
+
+  /** Reports the tracked promises that have been garbage collected since the last call. */
+  static void poll() {
+    Reference<?> ref;
+    while ((ref = QUEUE.poll()) != null) {
+      Leak leak = (Leak) ref;
+      if (!LIVE.remove(leak)) {
+        continue;
+      }
+      Throwable unobserved = leak.unobserved;
+      if (unobserved != null) {
+        listener.onUnobservedRejection(unobserved, leak.allocation);
+      } else {
+        listener.onUnsettled(leak.allocation);
+      }
+    }
+  }
+
+  /** The tracking of a promise, that is closed once the promise no longer can leak. */
+  static final class Leak extends PhantomReference<Object> {
+    @Nullable
+    final Throwable allocation;
+    /** The rejection reason, until a callback is registered. */
+    @Nullable
+    volatile Throwable unobserved;
+
+    Leak(Object promise, @Nullable Throwable allocation) {
+      super(promise, QUEUE);
+      this.allocation = allocation;
+    }
+
+    void settled(@Nullable Throwable reason, boolean observed) {
+      if (reason == null || observed || reason instanceof CancellationException) {
+        close();
+      } else {
+        unobserved = reason;
+      }
+    }
+
+    void rejectionObserved() {
+      close();
+    }
+
+    private void close() {
+      if (LIVE.remove(this)) {
+        clear();
+      }
+    }
+  }
+
+  private static final class AllocationTrace extends Throwable {
+    private static final long serialVersionUID = 1L;
+
+    AllocationTrace() {
+      super("Promise created at:");
+    }
+  }
+}
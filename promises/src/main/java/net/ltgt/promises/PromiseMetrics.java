@@ -0,0 +1,87 @@
+package net.ltgt.promises;
+
+import javax.annotation.Nullable;
+
+/**
+ * Receives events about the lifecycle of promises, for monitoring purposes.
+ * <p>
+ * Metrics are disabled by default, and then cost nothing: the hooks are compiled away. They're
+ * enabled by setting the {@code net.ltgt.promises.metrics} system property to {@code true}
+ * (before any promise is created), after which an implementation can be {@link #install
+ * installed}, e.g. {@link StandardPromiseMetrics}.
+ * <p>
+ * Hooks are called synchronously, from whichever thread creates or settles promises, so they
+ * must be fast and thread-safe, and they must not throw.
+ */
+public abstract class PromiseMetrics {
+
+  /** The kind of promise an event is about. */
+  public enum Source {
+    /** {@link FulfillablePromise}, including those returned by {@link Promises} combinators. */
+    FULFILLABLE,
+    /** {@link FuturePromise}. */
+    FUTURE,
+  }
+
+  static final boolean ENABLED = Boolean.getBoolean("net.ltgt.promises.metrics");
+
+  @Nullable
+  private static volatile PromiseMetrics installed;
+
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * Installs the given metrics, replacing any previously installed ones; {@code null} to
+   * uninstall.
+   *
+   * @throws IllegalStateException if metrics are not {@link #isEnabled() enabled}.
+   */
+  public static void install(@Nullable PromiseMetrics metrics) {
+    if (!ENABLED) {
+      throw new IllegalStateException(
+          "Metrics are disabled, set the net.ltgt.promises.metrics system property to enable them");
+    }
+    installed = metrics;
+  }
+
+  /** Called when a promise is created. */
+  protected void onCreated(Source source) {}
+
+  /**
+   * Called when a promise is settled.
+   *
+   * @param pendingNanos how long the promise was pending, or {@code -1} if unknown.
+   * @param handlers the number of callbacks registered while the promise was pending, or
+   *        {@code -1} if unknown.
+   * @param reason the reason the promise was rejected with, or {@code null} if fulfilled.
+   */
+  protected void onSettled(Source source, long pendingNanos, int handlers,
+      @Nullable Throwable reason) {}
+
+  /** Called when {@link Promises#wait} is called with the given number of promises. */
+  protected void onWait(int promises) {}
+
+  static void created(Source source) {
+    PromiseMetrics metrics = installed;
+    if (metrics != null) {
+      metrics.onCreated(source);
+    }
+  }
+
+  static void settled(Source source, long pendingNanos, int handlers,
+      @Nullable Throwable reason) {
+    PromiseMetrics metrics = installed;
+    if (metrics != null) {
+      metrics.onSettled(source, pendingNanos, handlers, reason);
+    }
+  }
+
+  static void waited(int promises) {
+    PromiseMetrics metrics = installed;
+    if (metrics != null) {
+      metrics.onWait(promises);
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A {@link Flow.Publisher} of the values of promises, as they're fulfilled.
+ *
+ * @see Promises#publisher(Collection)
+ * @see Promises#orderedPublisher(Collection)
+ */
+final class PromisePublisher<V> implements Flow.Publisher<V> {
+
+  private final Collection<? extends Promise<? extends V>> promises;
+  private final boolean ordered;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  PromisePublisher(Collection<? extends Promise<? extends V>> promises, boolean ordered) {
+    this.promises = requireNonNull(promises);
+    this.ordered = ordered;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super V> subscriber) {
+    requireNonNull(subscriber);
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          // no-op
+        }
+
+        @Override
+        public void cancel() {
+          // no-op
+        }
+      });
+      subscriber.onError(new IllegalStateException("Only one subscriber is allowed"));
+      return;
+    }
+    PromiseSubscription<V> subscription =
+        new PromiseSubscription<>(subscriber, promises.size(), ordered);
+    subscriber.onSubscribe(subscription);
+    if (promises.isEmpty()) {
+      subscription.drain();
+      return;
+    }
+    int i = 0;
+    for (Promise<? extends V> promise : promises) {
+      if (subscription.isTerminated()) {
+        break;
+      }
+      IndexedCallback.register(promise, subscription, i++);
+    }
+  }
+
+  /**
+   * Values are buffered as promises are fulfilled, and emitted by whichever thread wins the
+   * right to drain the buffer, as requested by the subscriber.
+   * <p>
+   * In input order, the buffer is an array indexed by input, and values are emitted as long as
+   * the next one is available; otherwise it's a queue.
+   */
+  private static final class PromiseSubscription<V> extends IndexedCallback<V>
+      implements Flow.Subscription {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<PromiseSubscription> WIP =
+        AtomicIntegerFieldUpdater.newUpdater(PromiseSubscription.class, "wip");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<PromiseSubscription> REQUESTED =
+        AtomicLongFieldUpdater.newUpdater(PromiseSubscription.class, "requested");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<PromiseSubscription, Throwable> FAILURE =
+        AtomicReferenceFieldUpdater.newUpdater(PromiseSubscription.class, Throwable.class,
+            "failure");
+
+    private final int size;
+
+    /** Cleared once terminated. */
+    private volatile Flow.Subscriber<? super V> subscriber;
+    /** Cleared once terminated; {@code null} in completion order. */
+    private volatile Object[] slots;
+    /** {@code null} in input order. */
+    private final ConcurrentLinkedQueue<Object> queue;
+
+    private volatile long requested;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+    private volatile int wip;
+
+    // Only accessed while draining
+    private int emitted;
+
+    PromiseSubscription(Flow.Subscriber<? super V> subscriber, int size, boolean ordered) {
+      this.subscriber = subscriber;
+      this.size = size;
+      this.slots = ordered ? new Object[size] : null;
+      this.queue = ordered ? null : new ConcurrentLinkedQueue<>();
+    }
+
+    boolean isTerminated() {
+      return subscriber == null;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        FAILURE.compareAndSet(this, null,
+            new IllegalArgumentException("§3.9: non-positive request: " + n));
+      } else {
+        for (;;) {
+          long r = requested;
+          long u = r + n;
+          if (u < 0) {
+            u = Long.MAX_VALUE;
+          }
+          if (REQUESTED.compareAndSet(this, r, u)) {
+            break;
+          }
+        }
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      drain();
+    }
+
+    @Override
+    void onFulfilled(int index, V value) {
+      if (value == null) {
+        onRejected(index, new NullPointerException("Promise #" + index + " fulfilled with null"));
+        return;
+      }
+      if (queue != null) {
+        queue.add(value);
+      } else {
+        Object[] slots = this.slots;
+        if (slots == null) {
+          return;
+        }
+        slots[index] = value;
+      }
+      drain();
+    }
+
+    @Override
+    void onRejected(int index, Throwable reason) {
+      FAILURE.compareAndSet(this, null, reason);
+      drain();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain() {
+      if (WIP.getAndIncrement(this) != 0) {
+        return;
+      }
+      int missed = 1;
+      for (;;) {
+        Flow.Subscriber<? super V> s = subscriber;
+        if (s != null) {
+          if (cancelled) {
+            terminate();
+          } else {
+            long r = requested;
+            long e = 0;
+            while (e != r && failure == null) {
+              Object value = poll();
+              if (value == null) {
+                break;
+              }
+              s.onNext((V) value);
+              e++;
+            }
+            Throwable f = failure;
+            if (f != null) {
+              terminate();
+              s.onError(f);
+            } else if (emitted == size) {
+              terminate();
+              s.onComplete();
+            } else if (e != 0 && r != Long.MAX_VALUE) {
+              REQUESTED.addAndGet(this, -e);
+            }
+          }
+        }
+        missed = WIP.addAndGet(this, -missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+
+    private Object poll() {
+      Object value;
+      if (queue != null) {
+        value = queue.poll();
+      } else if (emitted < size) {
+        value = slots[emitted];
+        slots[emitted] = null;
+      } else {
+        value = null;
+      }
+      if (value != null) {
+        emitted++;
+      }
+      return value;
+    }
+
+    private void terminate() {
+      subscriber = null;
+      slots = null;
+      if (queue != null) {
+        queue.clear();
+      }
+    }
+  }
+}
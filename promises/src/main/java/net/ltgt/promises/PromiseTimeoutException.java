@@ -0,0 +1,24 @@
+package net.ltgt.promises;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The reason a promise is rejected with when it's not settled before its deadline.
+ *
+ * @see Promises#withTimeout(Promise, java.time.Duration)
+ */
+public class PromiseTimeoutException extends TimeoutException {
+  private static final long serialVersionUID = 1L;
+
+  public PromiseTimeoutException(String message) {
+    super(message);
+  }
+
+  /**
+   * Timeouts are detected by a timer thread, whose stack trace would be meaningless; skip it.
+   */
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+}
@@ -0,0 +1,811 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+public final class Promises {
+
+  /**
+   * This is the same as Guava's Throwables#propagate, but we don't want a
+   * mandatory dependency on Guava.
+   */
+  static RuntimeException propagate(Throwable t) {
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new RuntimeException(t);
+  }
+
+  /**
+   * Returns a promise fulfilled with the given value.
+   * <p>
+   * Promises for common values ({@code null}, booleans, empty lists, sets and maps, and small
+   * integers) are pre-allocated and shared. The range of cached integers defaults to -128 to
+   * 127 and can be configured with the {@code net.ltgt.promises.Promises.integerCache.low} and
+   * {@code net.ltgt.promises.Promises.integerCache.high} system properties; note that the
+   * value of a cached promise for an {@link Integer} is equal, but not necessarily identical,
+   * to the given value.
+   */
+  @SuppressWarnings("unchecked")
+  public static <V> Promise<V> fulfilled(@Nullable V value) {
+    Promise<?> cached = FulfilledCache.lookup(value);
+    if (cached != null) {
+      return (Promise<V>) cached;
+    }
+    return newFulfilled(value);
+  }
+
+  private static final class FulfilledCache {
+    static final Promise<Object> NULL = newFulfilled(null);
+    static final Promise<Boolean> TRUE = newFulfilled(Boolean.TRUE);
+    static final Promise<Boolean> FALSE = newFulfilled(Boolean.FALSE);
+    static final Promise<List<Object>> EMPTY_LIST = newFulfilled(Collections.emptyList());
+    static final Promise<Set<Object>> EMPTY_SET = newFulfilled(Collections.emptySet());
+    static final Promise<Map<Object, Object>> EMPTY_MAP = newFulfilled(Collections.emptyMap());
+
+    static final int INTEGER_LOW;
+    static final Promise<?>[] INTEGERS;
+
+    static {
+      int low = Integer.getInteger("net.ltgt.promises.Promises.integerCache.low", -128);
+      int high = Integer.getInteger("net.ltgt.promises.Promises.integerCache.high", 127);
+      INTEGER_LOW = low;
+      INTEGERS = new Promise<?>[Math.max(0, high - low + 1)];
+      for (int i = 0; i < INTEGERS.length; i++) {
+        INTEGERS[i] = newFulfilled(Integer.valueOf(low + i));
+      }
+    }
+
+    @Nullable
+    static Promise<?> lookup(@Nullable Object value) {
+      if (value == null) {
+        return NULL;
+      }
+      if (value instanceof Boolean) {
+        return ((Boolean) value).booleanValue() ? TRUE : FALSE;
+      }
+      if (value instanceof Integer) {
+        // avoid overflows by using long arithmetic
+        long index = (long) ((Integer) value).intValue() - INTEGER_LOW;
+        return (index >= 0 && index < INTEGERS.length) ? INTEGERS[(int) index] : null;
+      }
+      if (value == Collections.emptyList()) {
+        return EMPTY_LIST;
+      }
+      if (value == Collections.emptySet()) {
+        return EMPTY_SET;
+      }
+      if (value == Collections.emptyMap()) {
+        return EMPTY_MAP;
+      }
+      return null;
+    }
+  }
+
+  private static <V> Promise<V> newFulfilled(@Nullable final V value) {
+    return new Promise<V>() {
+      @Override
+      public <R> Promise<R> then(Callback<? super V, R> callback) {
+        try {
+          return callback.onFulfilled(value);
+        } catch (Throwable t) {
+          return rejected(t);
+        }
+      }
+      @Override
+      public <R> Promise<R> then(ImmediateCallback<? super V, R> callback) {
+        try {
+          return fulfilled(callback.onFulfilled(value));
+        } catch (Throwable t) {
+          return rejected(t);
+        }
+      }
+      @Override
+      public void done(DoneCallback<? super V> callback) {
+        callback.onFulfilled(value);
+      }
+      @Override
+      public void done() {
+        // no-op
+      }
+    };
+  }
+
+  public static <V> Promise<V> rejected(final Throwable reason) {
+    return new Promise<V>() {
+      @Override
+      public <R> Promise<R> then(Callback<? super V, R> callback) {
+        try {
+          return callback.onRejected(reason);
+        } catch (Throwable t) {
+          return rejected(t);
+        }
+      }
+      @Override
+      public <R> Promise<R> then(ImmediateCallback<? super V, R> callback) {
+        try {
+          return fulfilled(callback.onRejected(reason));
+        } catch (Throwable t) {
+          return rejected(t);
+        }
+      }
+      @Override
+      public void done(DoneCallback<? super V> callback) {
+        callback.onRejected(reason);
+      }
+      @Override
+      public void done() {
+        throw propagate(reason);
+      }
+    };
+  }
+
+  /**
+   * Returns an {@link Executor} that runs each task in a new virtual thread.
+   * <p>
+   * Pass it to {@link Promise#then(Promise.Callback, Executor)} and similar methods so that
+   * callbacks that block (e.g. JDBC calls or legacy synchronous SDKs) don't tie up a platform
+   * thread while blocked.
+   *
+   * @throws UnsupportedOperationException if the running JVM doesn't support virtual threads.
+   */
+  public static Executor virtualThreadExecutor() {
+    if (VirtualThreadExecutor.INSTANCE == null) {
+      throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+    }
+    return VirtualThreadExecutor.INSTANCE;
+  }
+
+  @SafeVarargs
+  public static <V> Promise<List<V>> wait(Promise<? extends V>... promises) {
+    return wait(Arrays.asList(promises));
+  }
+
+  /**
+   * Returns a promise fulfilled with the values of all the given promises, in the same order,
+   * once they're all fulfilled; or rejected as soon as one of them is rejected.
+   * <p>
+   * The list the promise is fulfilled with is fixed-size.
+   * <p>
+   * Once the returned promise is settled, the callbacks registered on the given promises that
+   * are still pending no longer reference it, nor the values already collected, so they can be
+   * garbage collected even if those promises are never settled.
+   */
+  public static <V> Promise<List<V>> wait(Collection<? extends Promise<? extends V>> promises) {
+    if (PromiseMetrics.ENABLED) {
+      PromiseMetrics.waited(promises.size());
+    }
+    if (promises.isEmpty()) {
+      return fulfilled(Collections.<V>emptyList());
+    }
+    WaitAll<V> waitAll = new WaitAll<>(promises.size());
+    Promise<List<V>> result = waitAll.result;
+    int i = 0;
+    for (Promise<? extends V> promise : promises) {
+      if (waitAll.isCompleted()) {
+        // no need to register on the remaining promises
+        break;
+      }
+      IndexedCallback.register(promise, waitAll, i++);
+    }
+    return result;
+  }
+
+  private static final class WaitAll<V> extends IndexedCallback<V> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<WaitAll> REMAINING =
+        AtomicIntegerFieldUpdater.newUpdater(WaitAll.class, "remaining");
+
+    /** Cleared once completed. */
+    volatile FulfillablePromise<List<V>> result = FulfillablePromise.create();
+
+    /**
+     * Written by whichever thread fulfills each input, before it decrements
+     * {@link #remaining}; the thread that decrements it to zero thus sees all the values.
+     * <p>
+     * Cleared once completed.
+     */
+    private volatile Object[] values;
+
+    /** Number of inputs yet to be fulfilled, or zero once completed. */
+    private volatile int remaining;
+
+    WaitAll(int size) {
+      this.values = new Object[size];
+      this.remaining = size;
+    }
+
+    boolean isCompleted() {
+      return remaining == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void onFulfilled(int index, V value) {
+      Object[] values = this.values;
+      if (values == null) {
+        return;
+      }
+      values[index] = value;
+      for (;;) {
+        int r = remaining;
+        if (r == 0) {
+          return;
+        }
+        if (REMAINING.compareAndSet(this, r, r - 1)) {
+          if (r == 1) {
+            complete().fulfill((List<V>) Arrays.asList(values));
+          }
+          return;
+        }
+      }
+    }
+
+    @Override
+    void onRejected(int index, Throwable reason) {
+      for (;;) {
+        int r = remaining;
+        if (r == 0) {
+          return;
+        }
+        if (REMAINING.compareAndSet(this, r, 0)) {
+          complete().reject(reason);
+          return;
+        }
+      }
+    }
+
+    /**
+     * Releases the state so it's not retained by callbacks still registered on pending inputs.
+     */
+    private FulfillablePromise<List<V>> complete() {
+      FulfillablePromise<List<V>> result = this.result;
+      this.result = null;
+      this.values = null;
+      return result;
+    }
+  }
+
+  @SafeVarargs
+  public static <V> Promise<V> any(Promise<? extends V>... promises) {
+    return any(Arrays.asList(promises));
+  }
+
+  /**
+   * Returns a promise fulfilled with the value of the first of the given promises to be
+   * fulfilled; or rejected once all of them are rejected, with the reason of the last one.
+   *
+   * @throws IllegalArgumentException if {@code promises} is empty.
+   */
+  public static <V> Promise<V> any(Collection<? extends Promise<? extends V>> promises) {
+    if (promises.isEmpty()) {
+      throw new IllegalArgumentException("No promise");
+    }
+    Any<V> any = new Any<>(promises.size());
+    Promise<V> result = any.result;
+    int i = 0;
+    for (Promise<? extends V> promise : promises) {
+      if (any.isCompleted()) {
+        break;
+      }
+      IndexedCallback.register(promise, any, i++);
+    }
+    return result;
+  }
+
+  @SafeVarargs
+  public static <V> Promise<V> race(Promise<? extends V>... promises) {
+    return race(Arrays.asList(promises));
+  }
+
+  /**
+   * Returns a promise settled the same way as the first of the given promises to be settled.
+   *
+   * @throws IllegalArgumentException if {@code promises} is empty.
+   */
+  public static <V> Promise<V> race(Collection<? extends Promise<? extends V>> promises) {
+    if (promises.isEmpty()) {
+      throw new IllegalArgumentException("No promise");
+    }
+    Race<V> race = new Race<>();
+    Promise<V> result = race.result;
+    int i = 0;
+    for (Promise<? extends V> promise : promises) {
+      if (race.isCompleted()) {
+        break;
+      }
+      IndexedCallback.register(promise, race, i++);
+    }
+    return result;
+  }
+
+  @SafeVarargs
+  public static <V> Promise<List<Settlement<V>>> allSettled(Promise<? extends V>... promises) {
+    return allSettled(Arrays.asList(promises));
+  }
+
+  /**
+   * Returns a promise fulfilled with the {@link Settlement outcomes} of all the given promises,
+   * in the same order, once they're all settled. The returned promise is never rejected.
+   * <p>
+   * The list the promise is fulfilled with is fixed-size.
+   */
+  public static <V> Promise<List<Settlement<V>>> allSettled(
+      Collection<? extends Promise<? extends V>> promises) {
+    if (promises.isEmpty()) {
+      return fulfilled(Collections.<Settlement<V>>emptyList());
+    }
+    AllSettled<V> allSettled = new AllSettled<>(promises.size());
+    Promise<List<Settlement<V>>> result = allSettled.result;
+    int i = 0;
+    for (Promise<? extends V> promise : promises) {
+      IndexedCallback.register(promise, allSettled, i++);
+    }
+    return result;
+  }
+
+  @SafeVarargs
+  public static <V> Promise<List<V>> some(int count, Promise<? extends V>... promises) {
+    return some(Arrays.asList(promises), count);
+  }
+
+  /**
+   * Returns a promise fulfilled with the values of the first {@code count} of the given
+   * promises to be fulfilled, in the order they've been fulfilled; or rejected as soon as too
+   * many of them are rejected for {@code count} of them to be fulfilled, with the reason of
+   * the rejection that made it impossible.
+   * <p>
+   * The list the promise is fulfilled with is fixed-size.
+   *
+   * @throws IllegalArgumentException if {@code count} is negative or greater than the number
+   *         of promises.
+   */
+  public static <V> Promise<List<V>> some(Collection<? extends Promise<? extends V>> promises,
+      int count) {
+    if (count < 0 || count > promises.size()) {
+      throw new IllegalArgumentException("Cannot wait for " + count + " out of "
+          + promises.size() + " promises");
+    }
+    if (count == 0) {
+      return fulfilled(Collections.<V>emptyList());
+    }
+    Some<V> some = new Some<>(promises.size(), count);
+    Promise<List<V>> result = some.result;
+    int i = 0;
+    for (Promise<? extends V> promise : promises) {
+      if (some.isCompleted()) {
+        break;
+      }
+      IndexedCallback.register(promise, some, i++);
+    }
+    return result;
+  }
+
+  private static final class Any<V> extends IndexedCallback<V> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Any> REMAINING =
+        AtomicIntegerFieldUpdater.newUpdater(Any.class, "remaining");
+
+    /** Cleared once completed. */
+    volatile FulfillablePromise<V> result = FulfillablePromise.create();
+
+    /** Number of inputs yet to be rejected, or zero once completed. */
+    private volatile int remaining;
+
+    Any(int size) {
+      this.remaining = size;
+    }
+
+    boolean isCompleted() {
+      return remaining == 0;
+    }
+
+    @Override
+    void onFulfilled(int index, V value) {
+      for (;;) {
+        int r = remaining;
+        if (r == 0) {
+          return;
+        }
+        if (REMAINING.compareAndSet(this, r, 0)) {
+          complete().fulfill(value);
+          return;
+        }
+      }
+    }
+
+    @Override
+    void onRejected(int index, Throwable reason) {
+      for (;;) {
+        int r = remaining;
+        if (r == 0) {
+          return;
+        }
+        if (REMAINING.compareAndSet(this, r, r - 1)) {
+          if (r == 1) {
+            complete().reject(reason);
+          }
+          return;
+        }
+      }
+    }
+
+    private FulfillablePromise<V> complete() {
+      FulfillablePromise<V> result = this.result;
+      this.result = null;
+      return result;
+    }
+  }
+
+  private static final class Race<V> extends IndexedCallback<V> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Race, FulfillablePromise> RESULT =
+        AtomicReferenceFieldUpdater.newUpdater(Race.class, FulfillablePromise.class, "result");
+
+    /** Cleared once completed. */
+    volatile FulfillablePromise<V> result = FulfillablePromise.create();
+
+    boolean isCompleted() {
+      return result == null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void onFulfilled(int index, V value) {
+      FulfillablePromise<V> result = RESULT.getAndSet(this, null);
+      if (result != null) {
+        result.fulfill(value);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void onRejected(int index, Throwable reason) {
+      FulfillablePromise<V> result = RESULT.getAndSet(this, null);
+      if (result != null) {
+        result.reject(reason);
+      }
+    }
+  }
+
+  private static final class AllSettled<V> extends IndexedCallback<V> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<AllSettled> REMAINING =
+        AtomicIntegerFieldUpdater.newUpdater(AllSettled.class, "remaining");
+
+    final FulfillablePromise<List<Settlement<V>>> result = FulfillablePromise.create();
+
+    /** See {@link WaitAll#values}. */
+    private final Settlement<?>[] settlements;
+
+    /** Number of inputs yet to be settled. */
+    private volatile int remaining;
+
+    AllSettled(int size) {
+      this.settlements = new Settlement<?>[size];
+      this.remaining = size;
+    }
+
+    @Override
+    void onFulfilled(int index, V value) {
+      settle(index, Settlement.fulfilled(value));
+    }
+
+    @Override
+    void onRejected(int index, Throwable reason) {
+      settle(index, Settlement.rejected(reason));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void settle(int index, Settlement<V> settlement) {
+      settlements[index] = settlement;
+      if (REMAINING.decrementAndGet(this) == 0) {
+        result.fulfill((List) Arrays.asList(settlements));
+      }
+    }
+  }
+
+  private static final class Some<V> extends IndexedCallback<V> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Some> SLOTS =
+        AtomicIntegerFieldUpdater.newUpdater(Some.class, "slots");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Some> WRITTEN =
+        AtomicIntegerFieldUpdater.newUpdater(Some.class, "written");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Some> TOLERATED =
+        AtomicIntegerFieldUpdater.newUpdater(Some.class, "tolerated");
+
+    /** Cleared once completed. */
+    volatile FulfillablePromise<List<V>> result = FulfillablePromise.create();
+
+    /** Cleared once completed. */
+    private volatile Object[] values;
+
+    /** Number of slots in {@link #values} yet to be claimed, or zero once completed. */
+    private volatile int slots;
+
+    /**
+     * Number of values written to their slot; the thread that writes the last one thus sees all
+     * the values (see {@link WaitAll#values}).
+     */
+    private volatile int written;
+
+    /** Number of rejections that can still be tolerated. */
+    private volatile int tolerated;
+
+    Some(int size, int count) {
+      this.values = new Object[count];
+      this.slots = count;
+      this.tolerated = size - count;
+    }
+
+    boolean isCompleted() {
+      return slots == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void onFulfilled(int index, V value) {
+      // Read before claiming a slot, as it's cleared when rejected after the slot is claimed.
+      Object[] values = this.values;
+      if (values == null) {
+        return;
+      }
+      for (;;) {
+        int s = slots;
+        if (s == 0) {
+          return;
+        }
+        if (SLOTS.compareAndSet(this, s, s - 1)) {
+          values[values.length - s] = value;
+          if (WRITTEN.incrementAndGet(this) == values.length) {
+            FulfillablePromise<List<V>> result = this.result;
+            this.result = null;
+            this.values = null;
+            result.fulfill((List<V>) Arrays.asList(values));
+          }
+          return;
+        }
+      }
+    }
+
+    @Override
+    void onRejected(int index, Throwable reason) {
+      if (TOLERATED.decrementAndGet(this) >= 0) {
+        return;
+      }
+      for (;;) {
+        int s = slots;
+        if (s == 0) {
+          return;
+        }
+        if (SLOTS.compareAndSet(this, s, 0)) {
+          FulfillablePromise<List<V>> result = this.result;
+          this.result = null;
+          this.values = null;
+          result.reject(reason);
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a promise settled the same way as the given promise, unless it isn't settled
+   * within the given timeout, in which case the returned promise is rejected with a
+   * {@link PromiseTimeoutException}.
+   * <p>
+   * Promises derived from the returned promise through {@link Promise#then then} share the same
+   * deadline, so a whole chain of promises can be bounded by a single timeout.
+   * <p>
+   * Timeouts are handled by a single shared timer, with a precision of a few milliseconds.
+   * When the timeout expires, the returned promise is rejected by the timer thread, so the
+   * callbacks registered without an {@link Executor} then run on that thread, delaying all
+   * other timeouts; use {@link Promise#then(Promise.Callback, Executor)} and similar methods
+   * for anything but quick callbacks. Timeouts too large to be represented are capped to about
+   * 146 years.
+   */
+  public static <V> Promise<V> withTimeout(Promise<V> promise, Duration timeout) {
+    requireNonNull(promise);
+    long nanos;
+    try {
+      nanos = Math.min(Math.max(timeout.toNanos(), 0), MAX_TIMEOUT_NANOS);
+    } catch (ArithmeticException ae) {
+      nanos = timeout.isNegative() ? 0 : MAX_TIMEOUT_NANOS;
+    }
+    return DeadlinePromise.create(promise, System.nanoTime() + nanos);
+  }
+
+  /** Keeps deadlines far enough from overflowing when compared to {@link System#nanoTime()}. */
+  private static final long MAX_TIMEOUT_NANOS = Long.MAX_VALUE / 2;
+
+  /**
+   * Returns a {@link Flow.Publisher} of the values of the given promises, emitted in the order
+   * they're fulfilled, as requested by the subscriber.
+   * <p>
+   * The publisher errors as soon as one of the promises is rejected (or fulfilled with
+   * {@code null}, which cannot be emitted), and completes once all the values have been
+   * emitted. It only allows a single subscriber.
+   */
+  public static <V> Flow.Publisher<V> publisher(
+      Collection<? extends Promise<? extends V>> promises) {
+    return new PromisePublisher<V>(promises, false);
+  }
+
+  /**
+   * Same as {@link #publisher(Collection)} but values are emitted in the order of the given
+   * promises: values of promises fulfilled out of order are buffered until the values of all
+   * the promises before them have been emitted.
+   */
+  public static <V> Flow.Publisher<V> orderedPublisher(
+      Collection<? extends Promise<? extends V>> promises) {
+    return new PromisePublisher<V>(promises, true);
+  }
+
+  /**
+   * Maps each input to a promise, keeping at most {@code maxConcurrency} of those promises
+   * pending at any time, and returns a promise fulfilled with their values, in the order of
+   * the inputs; or rejected as soon as one of them is rejected (or {@code mapper} throws).
+   * <p>
+   * Inputs are pulled lazily from {@code inputs}, as previous promises are fulfilled, so only
+   * the promises in flight (in addition to the values) are retained at any time. The mapper is
+   * called from whichever thread fulfilled the previous promise, and never concurrently.
+   *
+   * @throws IllegalArgumentException if {@code maxConcurrency} is less than 1.
+   */
+  public static <T, R> Promise<List<R>> mapAsync(Iterable<? extends T> inputs,
+      int maxConcurrency, Function<? super T, ? extends Promise<? extends R>> mapper) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+    }
+    MapAsync<T, R> mapAsync = new MapAsync<T, R>(inputs.iterator(), maxConcurrency,
+        requireNonNull(mapper));
+    Promise<List<R>> result = mapAsync.result;
+    mapAsync.drain();
+    return result;
+  }
+
+  /**
+   * Settlements are queued, and processed by whichever thread wins the right to drain the
+   * queue, that will then also pull the next inputs; this serializes all accesses to the
+   * iterator, the mapper and the values, and keeps the stack depth constant when promises are
+   * fulfilled synchronously.
+   */
+  private static final class MapAsync<T, R> extends IndexedCallback<R> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<MapAsync> WIP =
+        AtomicIntegerFieldUpdater.newUpdater(MapAsync.class, "wip");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<MapAsync, Throwable> FAILURE =
+        AtomicReferenceFieldUpdater.newUpdater(MapAsync.class, Throwable.class, "failure");
+
+    private static final class Fulfillment {
+      final int index;
+      final Object value;
+
+      Fulfillment(int index, @Nullable Object value) {
+        this.index = index;
+        this.value = value;
+      }
+    }
+
+    final FulfillablePromise<List<R>> result = FulfillablePromise.create();
+
+    private final ConcurrentLinkedQueue<Fulfillment> fulfillments =
+        new ConcurrentLinkedQueue<>();
+    private volatile Throwable failure;
+    private volatile int wip;
+
+    // Only accessed while draining; all cleared once completed.
+    private final int maxConcurrency;
+    private Iterator<? extends T> inputs;
+    private Function<? super T, ? extends Promise<? extends R>> mapper;
+    private ArrayList<R> values = new ArrayList<>();
+    private int inFlight;
+    private boolean exhausted;
+
+    MapAsync(Iterator<? extends T> inputs, int maxConcurrency,
+        Function<? super T, ? extends Promise<? extends R>> mapper) {
+      this.inputs = inputs;
+      this.maxConcurrency = maxConcurrency;
+      this.mapper = mapper;
+    }
+
+    @Override
+    void onFulfilled(int index, R value) {
+      fulfillments.add(new Fulfillment(index, value));
+      drain();
+    }
+
+    @Override
+    void onRejected(int index, Throwable reason) {
+      FAILURE.compareAndSet(this, null, reason);
+      drain();
+    }
+
+    @SuppressWarnings("unchecked")
+    void drain() {
+      if (WIP.getAndIncrement(this) != 0) {
+        return;
+      }
+      int missed = 1;
+      for (;;) {
+        if (values != null) {
+          for (Fulfillment f; (f = fulfillments.poll()) != null; ) {
+            values.set(f.index, (R) f.value);
+            inFlight--;
+          }
+          Throwable failure = this.failure;
+          if (failure == null) {
+            try {
+              while (inFlight < maxConcurrency) {
+                if (!inputs.hasNext()) {
+                  exhausted = true;
+                  break;
+                }
+                T input = inputs.next();
+                int index = values.size();
+                values.add(null);
+                inFlight++;
+                Promise<? extends R> promise;
+                try {
+                  promise = mapper.apply(input);
+                } catch (Throwable t) {
+                  promise = rejected(t);
+                }
+                IndexedCallback.register(promise, this, index);
+              }
+            } catch (Throwable t) {
+              // thrown by the iterator, or while registering the callback
+              FAILURE.compareAndSet(this, null, t);
+              failure = this.failure;
+            }
+          }
+          if (failure != null) {
+            complete().reject(failure);
+          } else if (inFlight == 0 && exhausted) {
+            List<R> values = this.values;
+            complete().fulfill(values);
+          }
+        } else {
+          // completed: drop late fulfillments
+          fulfillments.clear();
+        }
+        missed = WIP.addAndGet(this, -missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+
+    private FulfillablePromise<List<R>> complete() {
+      inputs = null;
+      mapper = null;
+      values = null;
+      return result;
+    }
+  }
+
+  private Promises() {}
+}
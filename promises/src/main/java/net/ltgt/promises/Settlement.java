@@ -0,0 +1,84 @@
+package net.ltgt.promises;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+/**
+ * The outcome of a settled {@link Promise}: either fulfilled with a value, or rejected with a
+ * reason.
+ *
+ * @param <V> type of the promised value
+ * @see Promises#allSettled(java.util.Collection)
+ */
+public final class Settlement<V> {
+
+  public static <V> Settlement<V> fulfilled(@Nullable V value) {
+    return new Settlement<>(value, null);
+  }
+
+  public static <V> Settlement<V> rejected(Throwable reason) {
+    return new Settlement<>(null, requireNonNull(reason));
+  }
+
+  private final V value;
+  private final Throwable reason;
+
+  private Settlement(@Nullable V value, @Nullable Throwable reason) {
+    this.value = value;
+    this.reason = reason;
+  }
+
+  public boolean isFulfilled() {
+    return reason == null;
+  }
+
+  public boolean isRejected() {
+    return reason != null;
+  }
+
+  /**
+   * @throws IllegalStateException if the promise was rejected.
+   */
+  @Nullable
+  public V getValue() {
+    if (reason != null) {
+      throw new IllegalStateException("Promise was rejected", reason);
+    }
+    return value;
+  }
+
+  /**
+   * @throws IllegalStateException if the promise was fulfilled.
+   */
+  public Throwable getReason() {
+    if (reason == null) {
+      throw new IllegalStateException("Promise was fulfilled");
+    }
+    return reason;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Settlement)) {
+      return false;
+    }
+    Settlement<?> other = (Settlement<?>) obj;
+    return Objects.equals(value, other.value) && Objects.equals(reason, other.reason);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(value, reason);
+  }
+
+  @Override
+  public String toString() {
+    return isFulfilled() ? "Fulfilled(" + value + ")" : "Rejected(" + reason + ")";
+  }
+}
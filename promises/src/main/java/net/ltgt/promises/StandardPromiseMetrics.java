@@ -0,0 +1,200 @@
+package net.ltgt.promises;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link PromiseMetrics} recorded in {@link LongAdder}s, so that recording doesn't contend
+ * between threads.
+ * <p>
+ * Counts start when the metrics are installed, so promises created before that but settled
+ * after are not counted as created, and the number of outstanding promises is approximate.
+ */
+public final class StandardPromiseMetrics extends PromiseMetrics {
+
+  /**
+   * A histogram of non-negative values, with log-linear buckets similar to HdrHistogram's:
+   * values are recorded exactly up to 16, then with 16 buckets per power of two, i.e. within
+   * about 6% of their actual value.
+   */
+  public static final class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** Buckets are created lazily, as most of them are never used. */
+    private final AtomicReferenceArray<LongAdder> buckets =
+        new AtomicReferenceArray<>(BUCKETS);
+
+    Histogram() {}
+
+    static int index(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /** Returns the lowest value of the given bucket. */
+    static long lowestValue(int index) {
+      if (index < SUB_BUCKETS) {
+        return index;
+      }
+      int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      long subBucket = index % SUB_BUCKETS;
+      return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    void record(long value) {
+      if (value < 0) {
+        return;
+      }
+      int index = index(value);
+      LongAdder bucket = buckets.get(index);
+      if (bucket == null) {
+        bucket = new LongAdder();
+        if (!buckets.compareAndSet(index, null, bucket)) {
+          bucket = buckets.get(index);
+        }
+      }
+      bucket.increment();
+    }
+
+    public long getCount() {
+      long count = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        LongAdder bucket = buckets.get(i);
+        if (bucket != null) {
+          count += bucket.sum();
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Returns the value at the given percentile (between 0 and 100), within the precision of
+     * the histogram; or {@code 0} if no value has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+      }
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        LongAdder bucket = buckets.get(i);
+        if (bucket != null) {
+          counts[i] = bucket.sum();
+          total += counts[i];
+        }
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return lowestValue(i);
+        }
+      }
+      return 0;
+    }
+  }
+
+  private final EnumMap<Source, LongAdder> created = newCounters();
+  private final EnumMap<Source, LongAdder> settled = newCounters();
+  private final EnumMap<Source, LongAdder> rejected = newCounters();
+  private final ConcurrentMap<Class<? extends Throwable>, LongAdder> rejectionsByType =
+      new ConcurrentHashMap<>();
+  private final Histogram pendingNanos = new Histogram();
+  private final Histogram handlers = new Histogram();
+  private final Histogram waitSizes = new Histogram();
+
+  private static EnumMap<Source, LongAdder> newCounters() {
+    EnumMap<Source, LongAdder> counters = new EnumMap<>(Source.class);
+    for (Source source : Source.values()) {
+      counters.put(source, new LongAdder());
+    }
+    return counters;
+  }
+
+  @Override
+  protected void onCreated(Source source) {
+    created.get(source).increment();
+  }
+
+  @Override
+  protected void onSettled(Source source, long pendingNanos, int handlers,
+      @Nullable Throwable reason) {
+    settled.get(source).increment();
+    this.pendingNanos.record(pendingNanos);
+    this.handlers.record(handlers);
+    if (reason != null) {
+      rejected.get(source).increment();
+      LongAdder counter = rejectionsByType.get(reason.getClass());
+      if (counter == null) {
+        counter = rejectionsByType.computeIfAbsent(reason.getClass(),
+            (Class<? extends Throwable> type) -> new LongAdder());
+      }
+      counter.increment();
+    }
+  }
+
+  @Override
+  protected void onWait(int promises) {
+    waitSizes.record(promises);
+  }
+
+  public long getCreated(Source source) {
+    return created.get(source).sum();
+  }
+
+  public long getSettled(Source source) {
+    return settled.get(source).sum();
+  }
+
+  public long getRejected(Source source) {
+    return rejected.get(source).sum();
+  }
+
+  /** Returns the number of promises created but not yet settled. */
+  public long getOutstanding() {
+    long outstanding = 0;
+    for (Source source : Source.values()) {
+      outstanding += created.get(source).sum() - settled.get(source).sum();
+    }
+    return outstanding;
+  }
+
+  /** Returns a snapshot of the number of rejections per exception type. */
+  public Map<Class<? extends Throwable>, Long> getRejectionsByType() {
+    Map<Class<? extends Throwable>, Long> snapshot = new HashMap<>();
+    for (Map.Entry<Class<? extends Throwable>, LongAdder> entry : rejectionsByType.entrySet()) {
+      snapshot.put(entry.getKey(), entry.getValue().sum());
+    }
+    return snapshot;
+  }
+
+  /** Returns the histogram of how long promises were pending, in nanoseconds. */
+  public Histogram getPendingNanos() {
+    return pendingNanos;
+  }
+
+  /** Returns the histogram of the number of callbacks registered on pending promises. */
+  public Histogram getHandlers() {
+    return handlers;
+  }
+
+  /** Returns the histogram of the number of promises passed to {@link Promises#wait}. */
+  public Histogram getWaitSizes() {
+    return waitSizes;
+  }
+}
@@ -0,0 +1,58 @@
+package net.ltgt.promises;
+
+import java.util.ArrayDeque;
+
+/**
+ * Runs tasks on the current thread, iteratively rather than recursively.
+ * <p>
+ * The first task submitted on a thread is run immediately, and any task submitted while it's
+ * running (generally because a promise has been settled from within a callback) is queued and
+ * run after it returns, before {@link #execute(Runnable)} returns. This keeps the stack depth
+ * constant, however long a chain of promises is.
+ */
+final class Trampoline {
+
+  private static final ThreadLocal<Trampoline> CURRENT = new ThreadLocal<Trampoline>() {
+    @Override
+    protected Trampoline initialValue() {
+      return new Trampoline();
+    }
+  };
+
+  /**
+   * Runs the task, or queues it if a task is already running on the current thread.
+   * <p>
+   * If a task throws, the remaining tasks are still run, and the first exception is then
+   * rethrown to the caller that started running tasks.
+   */
+  static void execute(Runnable task) {
+    Trampoline trampoline = CURRENT.get();
+    if (trampoline.running) {
+      trampoline.queue.add(task);
+      return;
+    }
+    trampoline.running = true;
+    Throwable failure = null;
+    try {
+      for (Runnable next = task; next != null; next = trampoline.queue.poll()) {
+        try {
+          next.run();
+        } catch (Throwable t) {
+          if (failure == null) {
+            failure = t;
+          }
+        }
+      }
+    } finally {
+      trampoline.running = false;
+    }
+    if (failure != null) {
+      throw Promises.propagate(failure);
+    }
+  }
+
+  private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+  private boolean running;
+
+  private Trampoline() {}
+}
@@ -0,0 +1,42 @@
+package net.ltgt.promises;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An {@link Executor} running each task in a new virtual thread.
+ * <p>
+ * Virtual threads are only available starting with Java 21, so they're looked up reflectively
+ * to keep running on older JVMs.
+ */
+final class VirtualThreadExecutor implements Executor {
+
+  /** {@code null} if virtual threads aren't supported by the running JVM. */
+  static final VirtualThreadExecutor INSTANCE;
+
+  static {
+    ThreadFactory factory;
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, "promises-virtual-", 0L);
+      factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Either Java < 19, or Java 19/20 without --enable-preview
+      factory = null;
+    }
+    INSTANCE = (factory == null) ? null : new VirtualThreadExecutor(factory);
+  }
+
+  private final ThreadFactory factory;
+
+  private VirtualThreadExecutor(ThreadFactory factory) {
+    this.factory = factory;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    factory.newThread(command).start();
+  }
+}
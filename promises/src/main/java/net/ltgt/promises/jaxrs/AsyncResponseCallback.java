@@ -0,0 +1,75 @@
+package net.ltgt.promises.jaxrs;
+
+import java.util.Objects;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.container.ConnectionCallback;
+
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.Promise.DoneCallback;
+
+/**
+ * A {@link DoneCallback} resuming an {@link AsyncResponse} with the outcome of a promise.
+ * <p>
+ * Rejections are passed to {@link AsyncResponse#resume(Throwable)} whatever their type, so
+ * that they're processed as if thrown by the resource method (mapped by an
+ * {@link javax.ws.rs.ext.ExceptionMapper} if there's one, or turned into a server error);
+ * except for {@link WebApplicationException}s whose response is used directly.
+ */
+public final class AsyncResponseCallback extends DoneCallback<Object> {
+
+  public static AsyncResponseCallback create(AsyncResponse response) {
+    return new AsyncResponseCallback(response);
+  }
+
+  /**
+   * Resumes the response with the outcome of the promise, and cancels the promise if the
+   * response completes before (e.g. it times out) or the client disconnects.
+   */
+  public static void resume(final Promise<?> promise, AsyncResponse response) {
+    response.register(new Canceller(promise));
+    promise.done(create(response));
+  }
+
+  private static final class Canceller implements CompletionCallback, ConnectionCallback {
+    private final Promise<?> promise;
+
+    Canceller(Promise<?> promise) {
+      this.promise = Objects.requireNonNull(promise);
+    }
+
+    @Override
+    public void onComplete(Throwable throwable) {
+      // no-op if the response was resumed with the outcome of the promise
+      promise.cancel();
+    }
+
+    @Override
+    public void onDisconnect(AsyncResponse disconnected) {
+      promise.cancel();
+    }
+  }
+
+  private final AsyncResponse response;
+
+  private AsyncResponseCallback(AsyncResponse response) {
+    this.response = Objects.requireNonNull(response);
+  }
+
+  @Override
+  public void onFulfilled(Object value) {
+    response.resume(value);
+  }
+
+  @Override
+  public void onRejected(Throwable reason) {
+    // workarounds http://java.net/jira/browse/JERSEY-1753
+    if (reason instanceof WebApplicationException) {
+      response.resume(((WebApplicationException) reason).getResponse());
+    } else {
+      response.resume(reason);
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package net.ltgt.promises.jaxrs;
 
+import java.util.concurrent.Future;
+
 import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.core.GenericType;
 
@@ -17,9 +19,11 @@ import net.ltgt.promises.Promise;
  * For example:
  * <pre><code>
  * InvocationCallbackPromise&lt;JsonObject> promise = new InvocationCallbackPromise&ltJsonObject>() {};
- * asyncInvoker.get(promise);
+ * promise.propagateCancellationTo(asyncInvoker.get(promise));
  * promise.then(…).then(…);
  * </code></pre>
+ *
+ * @see PromiseInvoker
  */
 public abstract class InvocationCallbackPromise<V> extends ForwardingPromise<V> implements InvocationCallback<V> {
 
@@ -35,6 +39,16 @@ public abstract class InvocationCallbackPromise<V> extends ForwardingPromise<V>
     promise.reject(throwable);
   }
 
+  /**
+   * Makes cancelling this promise cancel the given future, generally the one returned by the
+   * {@link javax.ws.rs.client.AsyncInvoker} this callback was given to.
+   *
+   * @see FulfillablePromise#propagateCancellationTo(Future)
+   */
+  public void propagateCancellationTo(Future<?> future) {
+    promise.propagateCancellationTo(future);
+  }
+
   @Override
   protected Promise<V> getDelegate() {
     return promise;
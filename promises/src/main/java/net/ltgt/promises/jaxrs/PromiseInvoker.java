@@ -0,0 +1,91 @@
+package net.ltgt.promises.jaxrs;
+
+import java.util.Objects;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.GenericType;
+
+import net.ltgt.promises.CompletionStagePromise;
+import net.ltgt.promises.Promise;
+
+/**
+ * Invokes requests asynchronously, returning promises of the response entity.
+ * <p>
+ * Contrary to {@link InvocationCallbackPromise}, the response type is given once, as a
+ * {@link GenericType} or {@link Class}, rather than being read by reflection from a subclass
+ * created at each call site. Invokers are immutable, so they can be kept in constants; those
+ * for a {@link Class} are also cached (without retaining the class), so they can be looked up
+ * for each request.
+ * <p>
+ * Requests are invoked through the JAX-RS 2.1 {@link Invocation.Builder#rx() reactive invoker},
+ * whose {@link java.util.concurrent.CompletionStage} is wrapped directly, without any callback
+ * object; cancelling the promise cancels that stage.
+ * <p>
+ * For example:
+ * <pre><code>
+ * private static final PromiseInvoker&lt;JsonObject> JSON = PromiseInvoker.of(JsonObject.class);
+ * …
+ * JSON.get(target.request()).then(…).then(…);
+ * </code></pre>
+ *
+ * @param <V> type of the response entity
+ */
+public final class PromiseInvoker<V> {
+
+  private static final ClassValue<PromiseInvoker<?>> CACHE = new ClassValue<PromiseInvoker<?>>() {
+    @Override
+    protected PromiseInvoker<?> computeValue(Class<?> type) {
+      return new PromiseInvoker<>(new GenericType<>(type));
+    }
+  };
+
+  @SuppressWarnings("unchecked")
+  public static <V> PromiseInvoker<V> of(Class<V> responseType) {
+    return (PromiseInvoker<V>) CACHE.get(responseType);
+  }
+
+  /** Returns a new invoker, unless the type is a {@link Class}. */
+  @SuppressWarnings("unchecked")
+  public static <V> PromiseInvoker<V> of(GenericType<V> responseType) {
+    if (responseType.getType() instanceof Class) {
+      return (PromiseInvoker<V>) CACHE.get((Class<?>) responseType.getType());
+    }
+    return new PromiseInvoker<>(responseType);
+  }
+
+  private final GenericType<V> responseType;
+
+  private PromiseInvoker(GenericType<V> responseType) {
+    this.responseType = Objects.requireNonNull(responseType);
+  }
+
+  public GenericType<V> getResponseType() {
+    return responseType;
+  }
+
+  public Promise<V> get(Invocation.Builder request) {
+    return method(request, HttpMethod.GET);
+  }
+
+  public Promise<V> put(Invocation.Builder request, Entity<?> entity) {
+    return method(request, HttpMethod.PUT, entity);
+  }
+
+  public Promise<V> post(Invocation.Builder request, Entity<?> entity) {
+    return method(request, HttpMethod.POST, entity);
+  }
+
+  public Promise<V> delete(Invocation.Builder request) {
+    return method(request, HttpMethod.DELETE);
+  }
+
+  public Promise<V> method(Invocation.Builder request, String name) {
+    return CompletionStagePromise.create(request.rx().method(name, responseType));
+  }
+
+  public Promise<V> method(Invocation.Builder request, String name, Entity<?> entity) {
+    return CompletionStagePromise.create(request.rx().method(name, entity, responseType));
+  }
+}
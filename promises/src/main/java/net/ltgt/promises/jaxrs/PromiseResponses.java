@@ -0,0 +1,52 @@
+package net.ltgt.promises.jaxrs;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.Promise.DoneCallback;
+
+/**
+ * Lets resource methods return promises.
+ * <p>
+ * JAX-RS has no portable extension point for custom asynchronous return types, but since
+ * JAX-RS 2.1 resource methods can return a {@link CompletionStage}, which the runtime processes
+ * without blocking a thread: the resource method can thus return
+ * {@code PromiseResponses.toCompletionStage(promise)} rather than a {@code Promise} directly.
+ * Rejections are then processed as if thrown by the resource method, whatever their type.
+ * <p>
+ * For JAX-RS 2.0 runtimes, use {@link AsyncResponseCallback#resume} instead.
+ */
+public final class PromiseResponses {
+
+  /**
+   * Returns a {@link CompletionStage} settled the same way as the promise; cancelling its
+   * {@link CompletionStage#toCompletableFuture() future} cancels the promise.
+   */
+  public static <T> CompletionStage<T> toCompletionStage(final Promise<T> promise) {
+    final CompletableFuture<T> future = new CompletableFuture<T>() {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+          promise.cancel();
+        }
+        return cancelled;
+      }
+    };
+    promise.done(new DoneCallback<T>() {
+      @Override
+      public void onFulfilled(T value) {
+        future.complete(value);
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        future.completeExceptionally(reason);
+      }
+    });
+    return future;
+  }
+
+  private PromiseResponses() {}
+}
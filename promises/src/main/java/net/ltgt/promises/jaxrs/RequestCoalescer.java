@@ -0,0 +1,163 @@
+package net.ltgt.promises.jaxrs;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import net.ltgt.promises.ForwardingPromise;
+import net.ltgt.promises.FulfillablePromise;
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.Promise.DoneCallback;
+import net.ltgt.promises.Promises;
+
+/**
+ * Coalesces identical concurrent requests onto a single backend call.
+ * <p>
+ * While a call for a given key is in flight, requests for the same key share its outcome
+ * rather than making another call; once settled, the next request makes a new call (nothing is
+ * cached). Each request gets its own promise, so that cancelling it (e.g. because its client
+ * disconnected, see {@link AsyncResponseCallback#resume}) only cancels the backend call when
+ * all the requests sharing it have been cancelled.
+ * <p>
+ * Keys would typically be built from the request URI (and relevant headers) of safe methods,
+ * e.g. {@code GET}.
+ *
+ * @param <K> type of the keys identifying requests
+ * @param <V> type of the responses
+ */
+public final class RequestCoalescer<K, V> {
+
+  public static <K, V> RequestCoalescer<K, V> create() {
+    return new RequestCoalescer<>();
+  }
+
+  private final ConcurrentMap<K, Call> inFlight = new ConcurrentHashMap<>();
+
+  private RequestCoalescer() {}
+
+  /**
+   * Returns a promise for the outcome of the call in flight for the given key, making that call
+   * through the given backend if there's none.
+   */
+  public Promise<V> coalesce(K key, Supplier<? extends Promise<V>> backend) {
+    Objects.requireNonNull(key);
+    Objects.requireNonNull(backend);
+    for (;;) {
+      Call call = inFlight.get(key);
+      if (call == null) {
+        call = new Call(key);
+        if (inFlight.putIfAbsent(key, call) != null) {
+          continue;
+        }
+        call.start(backend);
+        return call.request();
+      }
+      if (call.join()) {
+        return call.request();
+      }
+      // all the requests sharing the call have just been cancelled, make a new call
+      inFlight.remove(key, call);
+    }
+  }
+
+  /**
+   * A call in flight, shared by the requests for its key that haven't been cancelled.
+   * <p>
+   * Requests are counted here rather than through the interest of derived promises, so that a
+   * request can't join a call that the last other request is concurrently cancelling.
+   */
+  private final class Call {
+    final K key;
+    final FulfillablePromise<V> promise = FulfillablePromise.create();
+    /** Set by the request making the call, before it gets its promise. */
+    volatile Promise<V> backendCall;
+    /** Guarded by {@code this}; starts with the request making the call. */
+    private int requests = 1;
+    /** Guarded by {@code this}. */
+    private boolean abandoned;
+
+    Call(K key) {
+      this.key = key;
+    }
+
+    void start(Supplier<? extends Promise<V>> backend) {
+      Promise<V> started;
+      try {
+        started = Objects.requireNonNull(backend.get());
+      } catch (Throwable t) {
+        started = Promises.rejected(t);
+      }
+      backendCall = started;
+      started.done(new DoneCallback<V>() {
+        @Override
+        public void onFulfilled(V value) {
+          inFlight.remove(key, Call.this);
+          promise.fulfill(value);
+        }
+
+        @Override
+        public void onRejected(Throwable reason) {
+          inFlight.remove(key, Call.this);
+          promise.reject(reason);
+        }
+      });
+    }
+
+    /** Counts a new request, unless the call has been abandoned. */
+    synchronized boolean join() {
+      if (abandoned) {
+        return false;
+      }
+      requests++;
+      return true;
+    }
+
+    /** Returns a promise for a request counted by the call, that leaves it when cancelled. */
+    Promise<V> request() {
+      final FulfillablePromise<V> request = FulfillablePromise.create();
+      request.propagateCancellationTo(new ForwardingPromise<V>() {
+        @Override
+        protected Promise<V> getDelegate() {
+          return promise;
+        }
+
+        @Override
+        public boolean cancel() {
+          leave();
+          return true;
+        }
+      });
+      promise.done(new DoneCallback<V>() {
+        @Override
+        public void onFulfilled(V value) {
+          request.fulfill(value);
+        }
+
+        @Override
+        public void onRejected(Throwable reason) {
+          request.reject(reason);
+        }
+      });
+      return request;
+    }
+
+    private void leave() {
+      synchronized (this) {
+        if (--requests > 0) {
+          return;
+        }
+        abandoned = true;
+      }
+      // forget the call whether or not it honors the cancellation, so the next request makes a
+      // new call
+      inFlight.remove(key, this);
+      backendCall.cancel();
+    }
+  }
+
+  /** Returns the number of calls in flight. */
+  public int size() {
+    return inFlight.size();
+  }
+}
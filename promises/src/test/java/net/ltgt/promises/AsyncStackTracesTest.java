@@ -0,0 +1,140 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import net.ltgt.promises.Promise.ImmediateCallback;
+import net.ltgt.promises.PromiseTestBase.TestDoneCallback;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncStackTracesTest {
+
+  private static final ImmediateCallback<Object, Object> PASS_THROUGH =
+      new ImmediateCallback<Object, Object>() {
+        @Override
+        public Object onFulfilled(Object value) {
+          return value;
+        }
+      };
+
+  private static final Executor DIRECT = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  @After
+  public void tearDown() {
+    AsyncStackTraces.setSamplingInterval(0);
+  }
+
+  private static List<String> callSites(Throwable reason) {
+    List<String> methods = new ArrayList<>();
+    for (Throwable suppressed : reason.getSuppressed()) {
+      if (AsyncStackTraces.MESSAGE.equals(suppressed.getMessage())) {
+        for (StackTraceElement frame : suppressed.getStackTrace()) {
+          assertThat(frame.getClassName()).isEqualTo(AsyncStackTracesTest.class.getName());
+          methods.add(frame.getMethodName());
+        }
+      }
+    }
+    return methods;
+  }
+
+  private static Promise<Object> first(Promise<Object> promise) {
+    return promise.then(PASS_THROUGH);
+  }
+
+  private static Promise<Object> second(Promise<Object> promise) {
+    return promise.then(new Promise.Callback<Object, Object>() {
+      @Override
+      public Promise<Object> onFulfilled(Object value) {
+        return Promises.fulfilled(value);
+      }
+    });
+  }
+
+  private static Promise<Object> withExecutor(Promise<Object> promise) {
+    return promise.then(PASS_THROUGH, DIRECT);
+  }
+
+  private static Promise<Object> forwarded(final Promise<Object> promise) {
+    return new ForwardingPromise<Object>() {
+      @Override
+      protected Promise<Object> getDelegate() {
+        return promise;
+      }
+    }.then(PASS_THROUGH);
+  }
+
+  private static void last(Promise<Object> promise, TestDoneCallback callback) {
+    promise.done(callback);
+  }
+
+  @Test
+  public void testRecordsCallSitesOfPendingPromises() {
+    AsyncStackTraces.setSamplingInterval(1);
+    Throwable reason = new Throwable();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    TestDoneCallback callback = new TestDoneCallback();
+    last(second(first(promise)), callback);
+
+    promise.reject(reason);
+
+    callback.assertRejected(reason);
+    assertThat(callSites(reason)).containsExactly("first", "second", "last");
+  }
+
+  @Test
+  public void testRecordsCallSitesOfSettledPromises() {
+    AsyncStackTraces.setSamplingInterval(1);
+    Throwable reason = new Throwable();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    promise.reject(reason);
+    TestDoneCallback callback = new TestDoneCallback();
+
+    last(first(promise), callback);
+
+    callback.assertRejected(reason);
+    assertThat(callSites(reason)).containsExactly("first");
+  }
+
+  @Test
+  public void testSkipsExecutorOverloadsAndForwardingPromises() {
+    AsyncStackTraces.setSamplingInterval(1);
+    Throwable reason = new Throwable();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    TestDoneCallback callback = new TestDoneCallback();
+    last(forwarded(withExecutor(promise)), callback);
+
+    promise.reject(reason);
+
+    callback.assertRejected(reason);
+    assertThat(callSites(reason)).containsExactly("withExecutor", "forwarded", "last");
+  }
+
+  @Test
+  public void testNotSampled() {
+    Throwable reason = new Throwable();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    TestDoneCallback callback = new TestDoneCallback();
+    AsyncStackTraces.setSamplingInterval(1);
+    last(first(promise), callback);
+
+    promise.reject(reason);
+
+    callback.assertRejected(reason);
+    assertThat(reason.getSuppressed()).isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeSamplingInterval() {
+    AsyncStackTraces.setSamplingInterval(-1);
+  }
+}
@@ -0,0 +1,227 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import net.ltgt.promises.PromiseTestBase.QueueExecutor;
+import net.ltgt.promises.PromiseTestBase.TestDoneCallback;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class BatchLoaderTest {
+
+  /** Bulk function returning the keys in upper case, except for "missing". */
+  static class Bulk implements Function<List<String>, Promise<Map<String, String>>> {
+    final List<List<String>> calls = new ArrayList<>();
+
+    @Override
+    public Promise<Map<String, String>> apply(List<String> keys) {
+      calls.add(keys);
+      Map<String, String> values = new HashMap<>();
+      for (String key : keys) {
+        if (!key.equals("missing")) {
+          values.put(key, key.toUpperCase());
+        }
+      }
+      return Promises.fulfilled(values);
+    }
+  }
+
+  static class Recorder extends TestDoneCallback {
+    Object value;
+    Throwable reason;
+
+    @Override
+    public void onFulfilled(Object value) {
+      super.onFulfilled(value);
+      this.value = value;
+    }
+
+    @Override
+    public void onRejected(Throwable reason) {
+      super.onRejected(reason);
+      this.reason = reason;
+    }
+  }
+
+  @Test
+  public void testBatchesWithinTick() {
+    Bulk bulk = new Bulk();
+    QueueExecutor executor = new QueueExecutor();
+    BatchLoader<String, String> loader = BatchLoader.create(bulk, 10, executor);
+    Recorder a = new Recorder();
+    Recorder b = new Recorder();
+    Recorder a2 = new Recorder();
+
+    loader.load("a").done(a);
+    loader.load("b").done(b);
+    loader.load("a").done(a2);
+    assertThat(bulk.calls).isEmpty();
+    a.assertPending();
+
+    executor.runAll();
+    assertThat(bulk.calls).isEqualTo(ImmutableList.of(ImmutableList.of("a", "b")));
+    assertThat(a.value).isEqualTo("A");
+    assertThat(b.value).isEqualTo("B");
+    assertThat(a2.value).isEqualTo("A");
+    assertThat(executor.executed()).isEqualTo(1);
+
+    loader.load("c");
+    executor.runAll();
+    assertThat(bulk.calls).hasSize(2);
+  }
+
+  @Test
+  public void testCancellingRequestDoesNotAffectOthersForSameKey() {
+    QueueExecutor executor = new QueueExecutor();
+    BatchLoader<String, String> loader = BatchLoader.create(new Bulk(), 10, executor);
+    Recorder cancelled = new Recorder();
+    Recorder later = new Recorder();
+    Recorder other = new Recorder();
+
+    Promise<String> promise = loader.load("a");
+    promise.done(cancelled);
+    assertThat(promise.cancel()).isTrue();
+    loader.load("a").done(later);
+    loader.load("a").done(other);
+    executor.runAll();
+
+    cancelled.assertCancelled();
+    assertThat(later.value).isEqualTo("A");
+    assertThat(other.value).isEqualTo("A");
+  }
+
+  @Test
+  public void testDispatchesFullBatch() {
+    Bulk bulk = new Bulk();
+    QueueExecutor executor = new QueueExecutor();
+    BatchLoader<String, String> loader = BatchLoader.create(bulk, 2, executor);
+
+    loader.load("a");
+    loader.load("b");
+    assertThat(bulk.calls).isEqualTo(ImmutableList.of(ImmutableList.of("a", "b")));
+
+    loader.load("c");
+    executor.runAll();
+    assertThat(bulk.calls)
+        .isEqualTo(ImmutableList.of(ImmutableList.of("a", "b"), ImmutableList.of("c")));
+  }
+
+  @Test
+  public void testExplicitDispatch() {
+    Bulk bulk = new Bulk();
+    QueueExecutor executor = new QueueExecutor();
+    BatchLoader<String, String> loader = BatchLoader.create(bulk, 10, executor);
+
+    loader.load("a");
+    loader.dispatch();
+    assertThat(bulk.calls).isEqualTo(ImmutableList.of(ImmutableList.of("a")));
+
+    // the scheduled task has nothing left to dispatch
+    executor.runAll();
+    assertThat(bulk.calls).hasSize(1);
+  }
+
+  @Test
+  public void testMissingKeyIsRejected() {
+    QueueExecutor executor = new QueueExecutor();
+    BatchLoader<String, String> loader = BatchLoader.create(new Bulk(), 10, executor);
+    Recorder missing = new Recorder();
+    Recorder present = new Recorder();
+
+    loader.load("missing").done(missing);
+    loader.load("a").done(present);
+    executor.runAll();
+
+    assertThat(missing.reason).isInstanceOf(NoSuchElementException.class);
+    assertThat(present.value).isEqualTo("A");
+  }
+
+  @Test
+  public void testThrowingHandlerDoesNotPreventSettlingOtherKeys() {
+    BatchLoader<String, String> loader =
+        BatchLoader.create(new Bulk(), 10, new QueueExecutor());
+    Recorder a = new Recorder();
+    Recorder b = new Recorder();
+
+    loader.load("a").done(a);
+    // a bare done() rethrows the rejection from the handler
+    loader.load("missing").done();
+    loader.load("b").done(b);
+    try {
+      loader.dispatch();
+      fail();
+    } catch (NoSuchElementException expected) {
+      // expected
+    }
+
+    assertThat(a.value).isEqualTo("A");
+    assertThat(b.value).isEqualTo("B");
+  }
+
+  @Test
+  public void testBulkRejectionRejectsAll() {
+    final Throwable expected = new ClassCastException("foo");
+    QueueExecutor executor = new QueueExecutor();
+    BatchLoader<String, String> loader = BatchLoader.create(
+        new Function<List<String>, Promise<Map<String, String>>>() {
+          @Override
+          public Promise<Map<String, String>> apply(List<String> keys) {
+            return Promises.rejected(expected);
+          }
+        }, 10, executor);
+    Recorder a = new Recorder();
+    Recorder b = new Recorder();
+
+    loader.load("a").done(a);
+    loader.load("b").done(b);
+    executor.runAll();
+
+    a.assertRejected(expected);
+    b.assertRejected(expected);
+  }
+
+  @Test
+  public void testExecutorRejectionRejectsBatch() {
+    final RejectedExecutionException expected = new RejectedExecutionException();
+    Bulk bulk = new Bulk();
+    BatchLoader<String, String> loader = BatchLoader.create(bulk, 10, new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        throw expected;
+      }
+    });
+    Recorder a = new Recorder();
+
+    loader.load("a").done(a);
+
+    a.assertRejected(expected);
+    assertThat(bulk.calls).isEmpty();
+  }
+
+  @Test
+  public void testLoadAll() {
+    Bulk bulk = new Bulk();
+    QueueExecutor executor = new QueueExecutor();
+    BatchLoader<String, String> loader = BatchLoader.create(bulk, 10, executor);
+    Recorder recorder = new Recorder();
+
+    loader.loadAll(Arrays.asList("b", "a", "b")).done(recorder);
+    executor.runAll();
+
+    assertThat(bulk.calls).isEqualTo(ImmutableList.of(ImmutableList.of("b", "a")));
+    assertThat(recorder.value).isEqualTo(Arrays.asList("B", "A", "B"));
+  }
+}
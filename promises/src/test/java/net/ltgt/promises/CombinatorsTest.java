@@ -0,0 +1,359 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import net.ltgt.promises.Promise.DoneCallback;
+
+import org.junit.Test;
+
+public class CombinatorsTest {
+
+  static class TestCallback<V> extends DoneCallback<V> {
+    @Override
+    public void onFulfilled(V value) {
+      fail("Promise unexpectedly fulfilled");
+    }
+    @Override
+    public void onRejected(Throwable reason) {
+      fail("Promise unexpectedly rejected");
+    }
+  }
+
+  static class Recorder<V> extends DoneCallback<V> {
+    boolean settled;
+    V value;
+    Throwable reason;
+
+    @Override
+    public void onFulfilled(V value) {
+      assertThat(settled).as("settled more than once").isFalse();
+      settled = true;
+      this.value = value;
+    }
+
+    @Override
+    public void onRejected(Throwable reason) {
+      assertThat(settled).as("settled more than once").isFalse();
+      settled = true;
+      this.reason = reason;
+    }
+  }
+
+  @Test
+  public void testAnyFirstFulfillmentWins() {
+    Object expected = new Object();
+    FulfillablePromise<Object> promise1 = FulfillablePromise.create();
+    FulfillablePromise<Object> promise2 = FulfillablePromise.create();
+    FulfillablePromise<Object> promise3 = FulfillablePromise.create();
+    Recorder<Object> recorder = new Recorder<>();
+    Promises.any(promise1, promise2, promise3).done(recorder);
+
+    promise1.reject(new ClassCastException("foo"));
+    assertThat(recorder.settled).isFalse();
+    promise3.fulfill(expected);
+    assertThat(recorder.settled).isTrue();
+    assertThat(recorder.value).isSameAs(expected);
+
+    promise2.fulfill(new Object());
+  }
+
+  @Test
+  public void testAnyAllRejected() {
+    final Throwable expected = new IllegalArgumentException("bar");
+    Promises.any(
+          Promises.rejected(new ClassCastException("foo")),
+          Promises.rejected(expected)
+        ).done(new TestCallback<Object>() {
+          @Override
+          public void onRejected(Throwable reason) {
+            assertThat(reason).isSameAs(expected);
+          }
+        });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAnyEmpty() {
+    Promises.any(new ArrayList<Promise<Object>>());
+  }
+
+  @Test
+  public void testRaceFirstSettlementWins() {
+    Throwable expected = new ClassCastException("foo");
+    FulfillablePromise<Object> promise1 = FulfillablePromise.create();
+    FulfillablePromise<Object> promise2 = FulfillablePromise.create();
+    Recorder<Object> recorder = new Recorder<>();
+    Promises.race(promise1, promise2).done(recorder);
+
+    promise2.reject(expected);
+    assertThat(recorder.reason).isSameAs(expected);
+
+    promise1.fulfill(new Object());
+  }
+
+  @Test
+  public void testRaceAlreadyFulfilled() {
+    final Object expected = new Object();
+    Promises.race(FulfillablePromise.create(), Promises.fulfilled(expected))
+        .done(new TestCallback<Object>() {
+          @Override
+          public void onFulfilled(Object value) {
+            assertThat(value).isSameAs(expected);
+          }
+        });
+  }
+
+  @Test
+  public void testAllSettled() {
+    Object expected1 = new Object();
+    Throwable expected2 = new ClassCastException("foo");
+    FulfillablePromise<Object> promise1 = FulfillablePromise.create();
+    Recorder<List<Settlement<Object>>> recorder = new Recorder<>();
+    Promises.allSettled(promise1, Promises.rejected(expected2)).done(recorder);
+    assertThat(recorder.settled).isFalse();
+
+    promise1.fulfill(expected1);
+
+    assertThat(recorder.value).hasSize(2);
+    assertThat(recorder.value.get(0).isFulfilled()).isTrue();
+    assertThat(recorder.value.get(0).getValue()).isSameAs(expected1);
+    assertThat(recorder.value.get(1).isRejected()).isTrue();
+    assertThat(recorder.value.get(1).getReason()).isSameAs(expected2);
+  }
+
+  @Test
+  public void testAllSettledEmpty() {
+    Promises.allSettled(new ArrayList<Promise<Object>>())
+        .done(new TestCallback<List<Settlement<Object>>>() {
+          @Override
+          public void onFulfilled(List<Settlement<Object>> value) {
+            assertThat(value).isEmpty();
+          }
+        });
+  }
+
+  @Test
+  public void testSomeInCompletionOrder() {
+    FulfillablePromise<Object> promise1 = FulfillablePromise.create();
+    FulfillablePromise<Object> promise2 = FulfillablePromise.create();
+    FulfillablePromise<Object> promise3 = FulfillablePromise.create();
+    FulfillablePromise<Object> promise4 = FulfillablePromise.create();
+    Recorder<List<Object>> recorder = new Recorder<>();
+    Promises.some(2, promise1, promise2, promise3, promise4).done(recorder);
+
+    promise3.fulfill("3");
+    promise2.reject(new ClassCastException("foo"));
+    assertThat(recorder.settled).isFalse();
+    promise1.fulfill("1");
+
+    assertThat(recorder.value).containsExactly("3", "1");
+
+    promise4.fulfill("4");
+  }
+
+  @Test
+  public void testSomeTooManyRejections() {
+    Throwable expected = new IllegalArgumentException("bar");
+    FulfillablePromise<Object> promise1 = FulfillablePromise.create();
+    FulfillablePromise<Object> promise2 = FulfillablePromise.create();
+    FulfillablePromise<Object> promise3 = FulfillablePromise.create();
+    Recorder<List<Object>> recorder = new Recorder<>();
+    Promises.some(2, promise1, promise2, promise3).done(recorder);
+
+    promise1.fulfill("1");
+    promise2.reject(new ClassCastException("foo"));
+    assertThat(recorder.settled).isFalse();
+    promise3.reject(expected);
+
+    assertThat(recorder.reason).isSameAs(expected);
+  }
+
+  @Test
+  public void testSomeZero() {
+    Promises.some(0, FulfillablePromise.create()).done(new TestCallback<List<Object>>() {
+      @Override
+      public void onFulfilled(List<Object> value) {
+        assertThat(value).isEmpty();
+      }
+    });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSomeTooMany() {
+    Promises.some(2, FulfillablePromise.create());
+  }
+
+  @Test
+  public void testSomeWithConcurrentSettlements() throws Exception {
+    final int size = 1000;
+    final int count = 500;
+    for (int run = 0; run < 50; run++) {
+      final List<FulfillablePromise<Integer>> promises = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        promises.add(FulfillablePromise.<Integer>create());
+      }
+      Recorder<List<Integer>> recorder = new Recorder<>();
+      Promises.some(promises, count).done(recorder);
+
+      List<Thread> workers = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final int offset = t;
+        Thread worker = new Thread() {
+          @Override
+          public void run() {
+            for (int i = offset; i < size; i += 4) {
+              if (i % 3 == 0) {
+                promises.get(i).reject(new ClassCastException("foo"));
+              } else {
+                promises.get(i).fulfill(i);
+              }
+            }
+          }
+        };
+        worker.start();
+        workers.add(worker);
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+
+      // 666 fulfillments for 500 slots: always fulfilled, with distinct non-null values
+      assertThat(recorder.settled).isTrue();
+      assertThat(recorder.reason).isNull();
+      assertThat(recorder.value).hasSize(count).doesNotContainNull().doesNotHaveDuplicates();
+    }
+  }
+
+  @Test
+  public void testMapAsyncBoundsConcurrency() {
+    final List<FulfillablePromise<Integer>> pending = new ArrayList<>();
+    final int[] pulled = new int[1];
+    Iterable<Integer> inputs = new Iterable<Integer>() {
+      @Override
+      public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+          @Override
+          public boolean hasNext() {
+            return pulled[0] < 10;
+          }
+
+          @Override
+          public Integer next() {
+            return pulled[0]++;
+          }
+        };
+      }
+    };
+    Recorder<List<Integer>> recorder = new Recorder<>();
+    Promises.mapAsync(inputs, 3, new Function<Integer, Promise<Integer>>() {
+      @Override
+      public Promise<Integer> apply(Integer input) {
+        FulfillablePromise<Integer> promise = FulfillablePromise.create();
+        pending.add(promise);
+        return promise;
+      }
+    }).done(recorder);
+
+    assertThat(pulled[0]).isEqualTo(3);
+    assertThat(pending).hasSize(3);
+
+    // settle out of order
+    pending.get(1).fulfill(10);
+    assertThat(pulled[0]).isEqualTo(4);
+    pending.get(3).fulfill(30);
+    pending.get(0).fulfill(0);
+    assertThat(pulled[0]).isEqualTo(6);
+    for (int i = 2; i < 10; i++) {
+      if (i != 3) {
+        pending.get(i).fulfill(i * 10);
+      }
+      assertThat(pending.size() - countSettled(pending)).isLessThanOrEqualTo(3);
+    }
+
+    assertThat(recorder.value).containsExactly(0, 10, 20, 30, 40, 50, 60, 70, 80, 90);
+  }
+
+  private static int countSettled(List<FulfillablePromise<Integer>> promises) {
+    final int[] settled = new int[1];
+    for (FulfillablePromise<Integer> promise : promises) {
+      promise.done(new DoneCallback<Integer>() {
+        @Override
+        public void onFulfilled(Integer value) {
+          settled[0]++;
+        }
+      });
+    }
+    return settled[0];
+  }
+
+  @Test
+  public void testMapAsyncStopsOnRejection() {
+    Throwable expected = new ClassCastException("foo");
+    final List<FulfillablePromise<Object>> pending = new ArrayList<>();
+    Recorder<List<Object>> recorder = new Recorder<>();
+    Promises.mapAsync(Arrays.asList(1, 2, 3, 4, 5), 2, new Function<Integer, Promise<Object>>() {
+      @Override
+      public Promise<Object> apply(Integer input) {
+        FulfillablePromise<Object> promise = FulfillablePromise.create();
+        pending.add(promise);
+        return promise;
+      }
+    }).done(recorder);
+
+    pending.get(1).reject(expected);
+    assertThat(recorder.reason).isSameAs(expected);
+
+    pending.get(0).fulfill(new Object());
+    assertThat(pending).hasSize(2);
+  }
+
+  @Test
+  public void testMapAsyncMapperThrows() {
+    final RuntimeException expected = new ClassCastException("foo");
+    Recorder<List<Object>> recorder = new Recorder<>();
+    Promises.mapAsync(Arrays.asList(1, 2), 1, new Function<Integer, Promise<Object>>() {
+      @Override
+      public Promise<Object> apply(Integer input) {
+        throw expected;
+      }
+    }).done(recorder);
+
+    assertThat(recorder.reason).isSameAs(expected);
+  }
+
+  @Test
+  public void testMapAsyncEmpty() {
+    Recorder<List<Object>> recorder = new Recorder<>();
+    Promises.mapAsync(new ArrayList<Object>(), 1, new Function<Object, Promise<Object>>() {
+      @Override
+      public Promise<Object> apply(Object input) {
+        throw new AssertionError();
+      }
+    }).done(recorder);
+
+    assertThat(recorder.value).isEmpty();
+  }
+
+  @Test
+  public void testMapAsyncSynchronousIsStackSafe() {
+    final int size = 100000;
+    List<Integer> inputs = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      inputs.add(i);
+    }
+    Recorder<List<Integer>> recorder = new Recorder<>();
+    Promises.mapAsync(inputs, 1, new Function<Integer, Promise<Integer>>() {
+      @Override
+      public Promise<Integer> apply(Integer input) {
+        return Promises.fulfilled(input);
+      }
+    }).done(recorder);
+
+    assertThat(recorder.value).isEqualTo(inputs);
+  }
+}
@@ -0,0 +1,93 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+public class CompletionStagePromiseTest extends PromiseTestBase<CompletionStagePromise<Object>> {
+
+  @Override
+  protected CompletionStagePromise<Object> createPromise() {
+    return CompletionStagePromise.create(new CompletableFuture<>());
+  }
+
+  @Override
+  protected void fulfill(CompletionStagePromise<Object> promise, Object value) {
+    CompletionStagePromise.adapt(promise).toCompletableFuture().complete(value);
+  }
+
+  @Override
+  protected void reject(CompletionStagePromise<Object> promise, Throwable reason) {
+    CompletionStagePromise.adapt(promise).toCompletableFuture().completeExceptionally(reason);
+  }
+
+  @Test
+  public void testAdaptUnwraps() {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+
+    assertThat(CompletionStagePromise.adapt(CompletionStagePromise.create(future)))
+        .isSameAs(future);
+  }
+
+  @Test
+  public void testAdapt() throws Exception {
+    Object expected = new Object();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    CompletionStage<Object> stage = CompletionStagePromise.adapt(promise);
+
+    promise.fulfill(expected);
+
+    assertThat(stage.toCompletableFuture().get()).isSameAs(expected);
+  }
+
+  @Test
+  public void testAdaptRejected() throws Exception {
+    Throwable expected = new ClassCastException("foo");
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    CompletionStage<Object> stage = CompletionStagePromise.adapt(promise);
+
+    promise.reject(expected);
+
+    try {
+      stage.toCompletableFuture().get();
+      failBecauseExceptionWasNotThrown(ExecutionException.class);
+    } catch (ExecutionException ee) {
+      assertThat(ee.getCause()).isSameAs(expected);
+    }
+  }
+
+  @Test
+  public void testComposesReturnedStage() throws Exception {
+    Object expected = new Object();
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    final CompletableFuture<Object> inner = new CompletableFuture<>();
+    TestCallback callback = new TestCallback(CompletionStagePromise.create(inner));
+    CompletionStage<Object> result = CompletionStagePromise.adapt(
+        CompletionStagePromise.create(future).then(callback));
+
+    future.complete(null);
+    callback.assertFulfilled(null);
+    assertThat(result.toCompletableFuture().isDone()).isFalse();
+
+    inner.complete(expected);
+    assertThat(result.toCompletableFuture().get()).isSameAs(expected);
+  }
+
+  @Test
+  public void testCancel() {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    TestDoneCallback callback = new TestDoneCallback();
+    CompletionStagePromise<Object> promise = CompletionStagePromise.create(future);
+    promise.then(new TestImmediateCallback()).done(callback);
+
+    assertThat(promise.cancel()).isTrue();
+
+    assertThat(future.isCancelled()).isTrue();
+    callback.assertCancelled();
+  }
+}
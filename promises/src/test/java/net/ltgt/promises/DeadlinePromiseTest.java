@@ -0,0 +1,153 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.ltgt.promises.Promise.Callback;
+import net.ltgt.promises.Promise.DoneCallback;
+
+import org.junit.Test;
+
+public class DeadlinePromiseTest {
+
+  static class AwaitingCallback<V> extends DoneCallback<V> {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<Object> outcome = new AtomicReference<>();
+
+    @Override
+    public void onFulfilled(V value) {
+      outcome.set(value);
+      latch.countDown();
+    }
+
+    @Override
+    public void onRejected(Throwable reason) {
+      outcome.set(reason);
+      latch.countDown();
+    }
+
+    Object await() throws InterruptedException {
+      assertThat(latch.await(5, TimeUnit.SECONDS)).as("settled in time").isTrue();
+      return outcome.get();
+    }
+  }
+
+  @Test
+  public void testTimesOut() throws Exception {
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    AwaitingCallback<Object> callback = new AwaitingCallback<>();
+    long start = System.nanoTime();
+    Promises.withTimeout(promise, Duration.ofMillis(50)).done(callback);
+
+    assertThat(callback.await()).isInstanceOf(PromiseTimeoutException.class);
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+
+    // settling the input afterwards is harmless
+    promise.fulfill(new Object());
+  }
+
+  @Test
+  public void testFulfilledBeforeTimeout() throws Exception {
+    Object expected = new Object();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    AwaitingCallback<Object> callback = new AwaitingCallback<>();
+    Promises.withTimeout(promise, Duration.ofMillis(50)).done(callback);
+
+    promise.fulfill(expected);
+
+    assertThat(callback.await()).isSameAs(expected);
+    // wait past the deadline: the callback must not be called again
+    Thread.sleep(100);
+    assertThat(callback.outcome.get()).isSameAs(expected);
+  }
+
+  @Test
+  public void testHugeTimeout() throws Exception {
+    Object expected = new Object();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    AwaitingCallback<Object> callback = new AwaitingCallback<>();
+    Promises.withTimeout(promise, Duration.ofSeconds(Long.MAX_VALUE)).done(callback);
+
+    // wait a few ticks of the timer: the timeout must not have expired
+    Thread.sleep(100);
+    assertThat(callback.outcome.get()).isNull();
+
+    promise.fulfill(expected);
+    assertThat(callback.await()).isSameAs(expected);
+  }
+
+  @Test
+  public void testRejectedBeforeTimeout() throws Exception {
+    Throwable expected = new ClassCastException("foo");
+    AwaitingCallback<Object> callback = new AwaitingCallback<>();
+    Promises.withTimeout(Promises.rejected(expected), Duration.ofMillis(50)).done(callback);
+
+    assertThat(callback.await()).isSameAs(expected);
+  }
+
+  @Test
+  public void testDeadlinePropagatesThroughThen() throws Exception {
+    final FulfillablePromise<Object> never = FulfillablePromise.create();
+    AwaitingCallback<Object> callback = new AwaitingCallback<>();
+    Promises.withTimeout(Promises.fulfilled(new Object()), Duration.ofMillis(50))
+        .then(new Callback<Object, Object>() {
+          @Override
+          public Promise<Object> onFulfilled(Object value) {
+            return never;
+          }
+        })
+        .done(callback);
+
+    assertThat(callback.await()).isInstanceOf(PromiseTimeoutException.class);
+  }
+
+  @Test
+  public void testManyTimeouts() throws Exception {
+    final int count = 100000;
+    final AtomicInteger timedOut = new AtomicInteger();
+    final CountDownLatch latch = new CountDownLatch(count / 2);
+    for (int i = 0; i < count; i++) {
+      FulfillablePromise<Object> promise = FulfillablePromise.create();
+      Promises.withTimeout(promise, Duration.ofMillis(20 + i % 100))
+          .done(new DoneCallback<Object>() {
+            @Override
+            public void onFulfilled(Object value) {
+              // expected
+            }
+
+            @Override
+            public void onRejected(Throwable reason) {
+              assertThat(reason).isInstanceOf(PromiseTimeoutException.class);
+              timedOut.incrementAndGet();
+              latch.countDown();
+            }
+          });
+      if (i % 2 == 0) {
+        promise.fulfill(null);
+      }
+    }
+
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    Thread.sleep(200);
+    assertThat(timedOut.get()).isEqualTo(count / 2);
+  }
+
+  @Test
+  public void testCancelPropagatesToInput() throws Exception {
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    AwaitingCallback<Object> callback = new AwaitingCallback<>();
+    Promise<Object> timed = Promises.withTimeout(promise, Duration.ofSeconds(5));
+    timed.done(callback);
+
+    assertThat(timed.cancel()).isTrue();
+
+    assertThat(callback.await()).isInstanceOf(CancellationException.class);
+    assertThat(promise.isCancelled()).isTrue();
+  }
+}
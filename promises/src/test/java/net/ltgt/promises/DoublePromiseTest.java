@@ -0,0 +1,273 @@
+package net.ltgt.promises;
+
+import static net.ltgt.promises.LongPromiseTest.getNow;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+import net.ltgt.promises.PromiseTestBase.TestDoneCallback;
+
+import org.junit.Test;
+
+public class DoublePromiseTest {
+
+  static class TestDoubleCallback extends DoublePromise.DoneCallback {
+    int called;
+    double value;
+    Throwable reason;
+
+    @Override
+    public void onFulfilled(double value) {
+      called++;
+      this.value = value;
+    }
+
+    @Override
+    public void onRejected(Throwable reason) {
+      called++;
+      this.reason = reason;
+    }
+
+    void assertPending() {
+      assertThat(called).isEqualTo(0);
+    }
+
+    void assertFulfilled(double expectedValue) {
+      assertThat(called).isEqualTo(1);
+      assertThat(reason).isNull();
+      assertThat(value).isEqualTo(expectedValue);
+    }
+
+    void assertRejected(Throwable expectedReason) {
+      assertThat(called).isEqualTo(1);
+      assertThat(reason).isSameAs(expectedReason);
+    }
+  }
+
+  private static final DoublePromise.ImmediateCallback INCREMENT =
+      new DoublePromise.ImmediateCallback() {
+        @Override
+        public double onFulfilled(double value) {
+          return value + 1;
+        }
+      };
+
+  @Test
+  public void testFulfill() {
+    DoublePromise promise = DoublePromise.create();
+    TestDoubleCallback callback = new TestDoubleCallback();
+    promise.done(callback);
+    callback.assertPending();
+
+    promise.fulfill(42);
+    callback.assertFulfilled(42);
+
+    TestDoubleCallback late = new TestDoubleCallback();
+    promise.done(late);
+    late.assertFulfilled(42);
+  }
+
+  @Test
+  public void testReject() {
+    Throwable reason = new Throwable();
+    DoublePromise promise = DoublePromise.create();
+    TestDoubleCallback callback = new TestDoubleCallback();
+    promise.done(callback);
+
+    promise.reject(reason);
+    callback.assertRejected(reason);
+
+    TestDoubleCallback late = new TestDoubleCallback();
+    promise.done(late);
+    late.assertRejected(reason);
+  }
+
+  @Test
+  public void testAlreadySettled() {
+    DoublePromise promise = DoublePromise.fulfilled(1);
+    try {
+      promise.fulfill(2);
+      fail();
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    try {
+      promise.reject(new Throwable());
+      fail();
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    assertThat(promise.cancel()).isFalse();
+  }
+
+  @Test
+  public void testCancel() {
+    DoublePromise promise = DoublePromise.create();
+    TestDoubleCallback callback = new TestDoubleCallback();
+    promise.done(callback);
+
+    assertThat(promise.cancel()).isTrue();
+    assertThat(callback.reason).isInstanceOf(CancellationException.class);
+
+    // no-op
+    promise.fulfill(1);
+    assertThat(callback.called).isEqualTo(1);
+  }
+
+  @Test
+  public void testThen() {
+    DoublePromise promise = DoublePromise.create();
+    TestDoubleCallback callback = new TestDoubleCallback();
+    promise.then(INCREMENT).then(INCREMENT).done(callback);
+    callback.assertPending();
+
+    promise.fulfill(1);
+    callback.assertFulfilled(3);
+
+    TestDoubleCallback late = new TestDoubleCallback();
+    promise.then(INCREMENT).done(late);
+    late.assertFulfilled(2);
+  }
+
+  @Test
+  public void testThenRejected() {
+    final Throwable reason = new Throwable();
+    TestDoubleCallback rethrown = new TestDoubleCallback();
+    DoublePromise.rejected(reason).then(INCREMENT).done(rethrown);
+    rethrown.assertRejected(reason);
+
+    TestDoubleCallback recovered = new TestDoubleCallback();
+    DoublePromise.rejected(reason).then(new DoublePromise.ImmediateCallback() {
+      @Override
+      public double onFulfilled(double value) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public double onRejected(Throwable r) {
+        assertThat(r).isSameAs(reason);
+        return -1;
+      }
+    }).done(recovered);
+    recovered.assertFulfilled(-1);
+  }
+
+  @Test
+  public void testThenThrows() {
+    final RuntimeException reason = new RuntimeException();
+    DoublePromise promise = DoublePromise.create();
+    TestDoubleCallback callback = new TestDoubleCallback();
+    promise.then(new DoublePromise.ImmediateCallback() {
+      @Override
+      public double onFulfilled(double value) {
+        throw reason;
+      }
+    }).done(callback);
+
+    promise.fulfill(1);
+    callback.assertRejected(reason);
+  }
+
+  @Test
+  public void testBoxing() {
+    DoublePromise promise = DoublePromise.create();
+    Promise<Double> boxed = promise.boxed();
+    promise.fulfill(42);
+    assertThat(getNow(boxed)).isEqualTo(42.0);
+
+    TestDoubleCallback unboxed = new TestDoubleCallback();
+    DoublePromise.unbox(Promises.fulfilled(42.0)).done(unboxed);
+    unboxed.assertFulfilled(42);
+
+    TestDoubleCallback nullValue = new TestDoubleCallback();
+    DoublePromise.unbox(Promises.<Double>fulfilled(null)).done(nullValue);
+    assertThat(nullValue.reason).isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void testWait() {
+    DoublePromise first = DoublePromise.create();
+    DoublePromise second = DoublePromise.fulfilled(2);
+    DoublePromise third = DoublePromise.create();
+    Promise<double[]> values = DoublePromise.wait(Arrays.asList(first, second, third));
+    TestDoneCallback callback = new TestDoneCallback();
+    values.done(callback);
+    callback.assertPending();
+
+    third.fulfill(3);
+    callback.assertPending();
+    first.fulfill(1);
+    assertThat(getNow(values)).isEqualTo(new double[] { 1, 2, 3 });
+  }
+
+  @Test
+  public void testWaitEmpty() {
+    assertThat(getNow(DoublePromise.wait(Collections.<DoublePromise>emptyList()))).isEmpty();
+  }
+
+  @Test
+  public void testWaitRejected() {
+    Throwable reason = new Throwable();
+    DoublePromise first = DoublePromise.create();
+    DoublePromise second = DoublePromise.create();
+    TestDoneCallback callback = new TestDoneCallback();
+    DoublePromise.wait(Arrays.asList(first, second)).done(callback);
+
+    second.reject(reason);
+    callback.assertRejected(reason);
+    // no-op
+    first.reject(new Throwable());
+  }
+
+  @Test
+  public void testReductions() {
+    DoublePromise first = DoublePromise.create();
+    DoublePromise second = DoublePromise.fulfilled(-5);
+    DoublePromise third = DoublePromise.create();
+    TestDoubleCallback sum = new TestDoubleCallback();
+    TestDoubleCallback min = new TestDoubleCallback();
+    TestDoubleCallback max = new TestDoubleCallback();
+    DoublePromise.sum(Arrays.asList(first, second, third)).done(sum);
+    DoublePromise.min(Arrays.asList(first, second, third)).done(min);
+    DoublePromise.max(Arrays.asList(first, second, third)).done(max);
+
+    first.fulfill(10);
+    sum.assertPending();
+    third.fulfill(7);
+    sum.assertFulfilled(12);
+    min.assertFulfilled(-5);
+    max.assertFulfilled(10);
+  }
+
+  @Test
+  public void testReductionsEmpty() {
+    TestDoubleCallback sum = new TestDoubleCallback();
+    DoublePromise.sum(Collections.<DoublePromise>emptyList()).done(sum);
+    sum.assertFulfilled(0);
+
+    TestDoubleCallback min = new TestDoubleCallback();
+    DoublePromise.min(Collections.<DoublePromise>emptyList()).done(min);
+    assertThat(min.reason).isInstanceOf(NoSuchElementException.class);
+
+    TestDoubleCallback max = new TestDoubleCallback();
+    DoublePromise.max(Collections.<DoublePromise>emptyList()).done(max);
+    assertThat(max.reason).isInstanceOf(NoSuchElementException.class);
+  }
+
+  @Test
+  public void testReductionsNaN() {
+    TestDoubleCallback sum = new TestDoubleCallback();
+    TestDoubleCallback min = new TestDoubleCallback();
+    List<DoublePromise> promises =
+        Arrays.asList(DoublePromise.fulfilled(1), DoublePromise.fulfilled(Double.NaN));
+    DoublePromise.sum(promises).done(sum);
+    DoublePromise.min(promises).done(min);
+    sum.assertFulfilled(Double.NaN);
+    min.assertFulfilled(Double.NaN);
+  }
+}
@@ -0,0 +1,393 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import net.ltgt.promises.Promise.Callback;
+import net.ltgt.promises.Promise.DoneCallback;
+import net.ltgt.promises.Promise.ImmediateCallback;
+
+import org.junit.Test;
+
+public class FulfillablePromiseTest extends PromiseTestBase<FulfillablePromise<Object>> {
+
+  @Override
+  protected FulfillablePromise<Object> createPromise() {
+    return FulfillablePromise.create();
+  }
+
+  @Override
+  protected void fulfill(FulfillablePromise<Object> promise, @Nullable Object value) {
+    promise.fulfill(value);
+  }
+
+  @Override
+  protected void reject(FulfillablePromise<Object> promise, Throwable reason) {
+    promise.reject(reason);
+  }
+
+  @Test
+  public void testHandlersCalledInRegistrationOrder() {
+    final List<Integer> calls = new ArrayList<>();
+    FulfillablePromise<Object> promise = createPromise();
+    for (int i = 0; i < 10; i++) {
+      final int pos = i;
+      promise.done(new DoneCallback<Object>() {
+        @Override
+        public void onFulfilled(@Nullable Object value) {
+          calls.add(pos);
+        }
+      });
+    }
+
+    promise.fulfill(null);
+
+    assertThat(calls).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+  }
+
+  @Test
+  public void testConcurrentRegistrationAndSettlement() throws Exception {
+    final int threads = 8;
+    final int handlersPerThread = 10000;
+    for (int run = 0; run < 20; run++) {
+      final FulfillablePromise<Object> promise = createPromise();
+      final Object expected = new Object();
+      final AtomicInteger calls = new AtomicInteger();
+      final CountDownLatch start = new CountDownLatch(1);
+      List<Thread> workers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        Thread worker = new Thread() {
+          @Override
+          public void run() {
+            try {
+              start.await();
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+            for (int i = 0; i < handlersPerThread; i++) {
+              promise.done(new DoneCallback<Object>() {
+                @Override
+                public void onFulfilled(@Nullable Object value) {
+                  assertThat(value).isSameAs(expected);
+                  calls.incrementAndGet();
+                }
+              });
+            }
+          }
+        };
+        worker.start();
+        workers.add(worker);
+      }
+      start.countDown();
+      promise.fulfill(expected);
+      for (Thread worker : workers) {
+        worker.join();
+      }
+
+      assertThat(calls.get()).isEqualTo(threads * handlersPerThread);
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testSlowCallbackDoesNotBlockOtherThreads() throws Exception {
+    final FulfillablePromise<Object> promise = createPromise();
+    final Object expected = new Object();
+    final CountDownLatch callbackEntered = new CountDownLatch(1);
+    final CountDownLatch releaseCallback = new CountDownLatch(1);
+    promise.done(new DoneCallback<Object>() {
+      @Override
+      public void onFulfilled(@Nullable Object value) {
+        callbackEntered.countDown();
+        try {
+          releaseCallback.await();
+        } catch (InterruptedException e) {
+          throw new AssertionError(e);
+        }
+      }
+    });
+    Thread settler = new Thread() {
+      @Override
+      public void run() {
+        promise.fulfill(expected);
+      }
+    };
+    settler.start();
+    try {
+      assertThat(callbackEntered.await(5, TimeUnit.SECONDS)).isTrue();
+
+      // The settling thread is stuck in the first callback: registering callbacks from
+      // another thread must neither block nor wait for it.
+      for (int i = 0; i < 1000; i++) {
+        TestImmediateCallback callback = new TestImmediateCallback() {
+          @Override
+          protected Object doOnFulfilled(Object value) {
+            return value;
+          }
+        };
+        long start = System.nanoTime();
+        Promise<Object> derived = promise.then(callback);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        callback.assertFulfilled(expected);
+
+        TestDoneCallback doneCallback = new TestDoneCallback();
+        derived.done(doneCallback);
+        doneCallback.assertFulfilled(expected);
+      }
+      assertThat(settler.isAlive()).isTrue();
+    } finally {
+      releaseCallback.countDown();
+      settler.join();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testNoDeadlockBetweenChainedPromises() throws Exception {
+    for (int run = 0; run < 1000; run++) {
+      final FulfillablePromise<Object> a = createPromise();
+      final FulfillablePromise<Object> b = createPromise();
+      // Each promise's callback registers a callback on the other promise: with a lock per
+      // promise, settling both concurrently would be prone to lock-order deadlocks.
+      a.then(new ImmediateCallback<Object, Object>() {
+        @Override
+        public Object onFulfilled(@Nullable Object value) {
+          b.done(new TestDoneCallback());
+          return value;
+        }
+      });
+      b.then(new ImmediateCallback<Object, Object>() {
+        @Override
+        public Object onFulfilled(@Nullable Object value) {
+          a.done(new TestDoneCallback());
+          return value;
+        }
+      });
+      Thread other = new Thread() {
+        @Override
+        public void run() {
+          b.fulfill(null);
+        }
+      };
+      other.start();
+      a.fulfill(null);
+      other.join();
+    }
+  }
+
+  @Test
+  public void testDeepChainIsStackSafe() {
+    final int length = 100000;
+    FulfillablePromise<Object> head = createPromise();
+    Promise<Integer> tail = head.then(new ImmediateCallback<Object, Integer>() {
+      @Override
+      public Integer onFulfilled(@Nullable Object value) {
+        return 0;
+      }
+    });
+    for (int i = 0; i < length; i++) {
+      tail = tail.then(new Callback<Integer, Integer>() {
+        @Override
+        public Promise<Integer> onFulfilled(@Nullable Integer value) {
+          return Promises.fulfilled(value + 1);
+        }
+      });
+    }
+    final AtomicInteger result = new AtomicInteger(-1);
+    tail.done(new DoneCallback<Integer>() {
+      @Override
+      public void onFulfilled(@Nullable Integer value) {
+        result.set(value);
+      }
+    });
+
+    head.fulfill(null);
+
+    assertThat(result.get()).isEqualTo(length);
+  }
+
+  @Test
+  public void testDeepRejectionChainIsStackSafe() {
+    final int length = 100000;
+    final Throwable expected = new ClassCastException("foo");
+    FulfillablePromise<Object> head = createPromise();
+    Promise<Object> tail = head;
+    for (int i = 0; i < length; i++) {
+      tail = tail.then(new ImmediateCallback<Object, Object>() {
+        @Override
+        public Object onFulfilled(@Nullable Object value) {
+          throw new AssertionError();
+        }
+      });
+    }
+    TestDoneCallback callback = new TestDoneCallback();
+    tail.done(callback);
+
+    head.reject(expected);
+
+    callback.assertRejected(expected);
+  }
+
+  @Test
+  public void testCallbackReturningNull() {
+    FulfillablePromise<Object> fulfilled = createPromise();
+    FulfillablePromise<Object> rejected = createPromise();
+    final List<Throwable> reasons = new ArrayList<>();
+    DoneCallback<Object> callback = new DoneCallback<Object>() {
+      @Override
+      public void onFulfilled(@Nullable Object value) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public void onRejected(Throwable reason) {
+        reasons.add(reason);
+      }
+    };
+    fulfilled.then(new TestCallback(null)).done(callback);
+    rejected.then(new TestCallback(null, null) {
+      @Override
+      public Promise<Object> onRejected(Throwable reason) {
+        return null;
+      }
+    }).done(callback);
+
+    fulfilled.fulfill(new Object());
+    rejected.reject(new Throwable());
+
+    assertThat(reasons).hasSize(2);
+    assertThat(reasons.get(0)).isInstanceOf(NullPointerException.class);
+    assertThat(reasons.get(1)).isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void testCancel() {
+    FulfillablePromise<Object> promise = createPromise();
+    TestDoneCallback callback = new TestDoneCallback();
+    promise.done(callback);
+
+    assertThat(promise.cancel()).isTrue();
+    callback.assertCancelled();
+
+    assertThat(promise.cancel()).isFalse();
+    // settling a cancelled promise is a no-op
+    promise.fulfill(new Object());
+    promise.reject(new ClassCastException("foo"));
+  }
+
+  @Test
+  public void testCancelSettled() {
+    FulfillablePromise<Object> promise = createPromise();
+    Object expected = new Object();
+    promise.fulfill(expected);
+
+    assertThat(promise.cancel()).isFalse();
+
+    TestDoneCallback callback = new TestDoneCallback();
+    promise.done(callback);
+    callback.assertFulfilled(expected);
+  }
+
+  @Test
+  public void testCancelPropagatesDownstream() {
+    FulfillablePromise<Object> promise = createPromise();
+    TestDoneCallback callback = new TestDoneCallback();
+    promise.then(new TestImmediateCallback()).done(callback);
+
+    promise.cancel();
+
+    callback.assertCancelled();
+  }
+
+  @Test
+  public void testCancelPropagatesUpstream() {
+    FulfillablePromise<Object> promise = createPromise();
+    TestImmediateCallback callback = new TestImmediateCallback();
+    Promise<Object> derived = promise.then(callback).then(new TestImmediateCallback());
+
+    assertThat(derived.cancel()).isTrue();
+
+    assertThat(promise.isCancelled()).isTrue();
+    // the callback has been dropped
+    assertPending(callback);
+  }
+
+  @Test
+  public void testCancelPropagatesUpstreamOnceAllDependentsCancelled() {
+    FulfillablePromise<Object> promise = createPromise();
+    Promise<Object> derived1 = promise.then(new TestImmediateCallback());
+    Promise<Object> derived2 = promise.then(new TestCallback(Promises.fulfilled(null)));
+
+    derived1.cancel();
+    assertThat(promise.isCancelled()).isFalse();
+
+    derived2.cancel();
+    assertThat(promise.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void testCancelDoesNotPropagateUpstreamWhenObserved() {
+    FulfillablePromise<Object> promise = createPromise();
+    TestDoneCallback observer = new TestDoneCallback();
+    promise.done(observer);
+    Promise<Object> derived = promise.then(new TestImmediateCallback());
+
+    derived.cancel();
+
+    assertThat(promise.isCancelled()).isFalse();
+    Object expected = new Object();
+    promise.fulfill(expected);
+    observer.assertFulfilled(expected);
+  }
+
+  @Test
+  public void testCancelPropagatesToReturnedPromise() {
+    FulfillablePromise<Object> promise = createPromise();
+    FulfillablePromise<Object> inner = createPromise();
+    Promise<Object> derived = promise.then(new TestCallback(inner));
+
+    promise.fulfill(null);
+    derived.cancel();
+
+    assertThat(inner.isCancelled()).isTrue();
+    assertThat(promise.isCancelled()).isFalse();
+  }
+
+  @Test
+  public void testCancelPropagatesToFuture() {
+    FulfillablePromise<Object> promise = createPromise();
+    FutureTask<Object> future = new FutureTask<>(new Runnable() {
+      @Override
+      public void run() {
+        throw new AssertionError();
+      }
+    }, null);
+    promise.propagateCancellationTo(future);
+
+    promise.then(new TestImmediateCallback()).cancel();
+
+    assertThat(future.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void testPropagateCancellationToAlreadyCancelled() {
+    FulfillablePromise<Object> promise = createPromise();
+    FutureTask<Object> future = new FutureTask<>(new Runnable() {
+      @Override
+      public void run() {
+        throw new AssertionError();
+      }
+    }, null);
+    promise.cancel();
+
+    promise.propagateCancellationTo(future);
+
+    assertThat(future.isCancelled()).isTrue();
+  }
+}
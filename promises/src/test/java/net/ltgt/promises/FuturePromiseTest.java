@@ -0,0 +1,201 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.FluentFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+public class FuturePromiseTest extends PromiseTestBase<FuturePromise<Object>> {
+
+  @Override
+  protected FuturePromise<Object> createPromise() {
+    return FuturePromise.create(SettableFuture.create());
+  }
+
+  @Override
+  protected void fulfill(FuturePromise<Object> promise, Object value) {
+    ((SettableFuture<Object>) promise.delegate()).set(value);
+  }
+
+  @Override
+  protected void reject(FuturePromise<Object> promise, Throwable reason) {
+    ((SettableFuture<Object>) promise.delegate()).setException(reason);
+  }
+
+  @Test
+  public void testAdapt() throws Throwable {
+    Object expected = new Object();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    ListenableFuture<Object> future = FuturePromise.adapt(promise);
+
+    promise.fulfill(expected);
+
+    assertThat(future.get()).isSameAs(expected);
+  }
+
+  @Test
+  public void testAdaptRejected() {
+    Throwable expected = new ClassCastException("foo");
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    ListenableFuture<Object> future = FuturePromise.adapt(promise);
+
+    promise.reject(expected);
+
+    try {
+      future.get();
+      failBecauseExceptionWasNotThrown(ExecutionException.class);
+    } catch (Throwable t) {
+      assertThat(t).isInstanceOf(ExecutionException.class);
+      assertThat(t.getCause()).isSameAs(expected);
+    }
+  }
+
+  @Test
+  public void testAdaptAlreadyFulfilled() throws Throwable {
+    Object expected = new Object();
+    Promise<Object> promise = Promises.fulfilled(expected);
+    ListenableFuture<Object> future = FuturePromise.adapt(promise);
+
+    assertThat(future.get()).isSameAs(expected);
+  }
+
+  @Test
+  public void testAdaptAlreadyRejected() {
+    Throwable expected = new ClassCastException("foo");
+    Promise<Object> promise = Promises.rejected(expected);
+    ListenableFuture<Object> future = FuturePromise.adapt(promise);
+
+    try {
+      future.get();
+      failBecauseExceptionWasNotThrown(ExecutionException.class);
+    } catch (Throwable t) {
+      assertThat(t).isInstanceOf(ExecutionException.class);
+      assertThat(t.getCause()).isSameAs(expected);
+    }
+  }
+
+  @Test
+  public void testCancelPropagatesUpstream() {
+    SettableFuture<Object> future = SettableFuture.create();
+    TestDoneCallback callback = new TestDoneCallback();
+    Promise<Object> derived = FuturePromise.create(future).then(new TestImmediateCallback());
+    derived.done(callback);
+
+    assertThat(derived.cancel()).isTrue();
+
+    callback.assertCancelled();
+    assertThat(future.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void testCancelPropagatesToReturnedPromise() {
+    SettableFuture<Object> future = SettableFuture.create();
+    FulfillablePromise<Object> inner = FulfillablePromise.create();
+    Promise<Object> derived = FuturePromise.create(future).then(new TestCallback(inner));
+
+    future.set(null);
+    derived.cancel();
+
+    assertThat(inner.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void testComposesReturnedFuture() throws Exception {
+    Object expected = new Object();
+    SettableFuture<Object> future = SettableFuture.create();
+    SettableFuture<Object> inner = SettableFuture.create();
+    FuturePromise<Object> derived =
+        FuturePromise.create(future).then(new TestCallback(FuturePromise.create(inner)));
+
+    future.set(null);
+    assertThat(derived.isDone()).isFalse();
+
+    inner.set(expected);
+    assertThat(derived.get()).isSameAs(expected);
+  }
+
+  @Test
+  public void testCancelPropagatesToReturnedFuture() {
+    SettableFuture<Object> future = SettableFuture.create();
+    SettableFuture<Object> inner = SettableFuture.create();
+    FuturePromise<Object> derived =
+        FuturePromise.create(future).then(new TestCallback(FuturePromise.create(inner)));
+
+    future.set(null);
+    derived.cancel();
+
+    assertThat(inner.isCancelled()).isTrue();
+  }
+
+  @Test
+  public void testDefaultExecutor() {
+    Object expected = new Object();
+    QueueExecutor executor = new QueueExecutor();
+    SettableFuture<Object> future = SettableFuture.create();
+    TestImmediateCallback callback = new TestImmediateCallback() {
+      @Override
+      protected Object doOnFulfilled(Object value) {
+        return value;
+      }
+    };
+    TestDoneCallback callback2 = new TestDoneCallback();
+    FuturePromise.create(future, executor).then(callback).done(callback2);
+
+    future.set(expected);
+    callback.assertPending();
+    assertThat(executor.executed()).isEqualTo(1);
+
+    executor.runAll();
+    callback.assertFulfilled(expected);
+    callback2.assertFulfilled(expected);
+    // the derived promise's callback ran directly, from the executor
+    assertThat(executor.executed()).isEqualTo(1);
+  }
+
+  @Test
+  public void testRejectedExecution() {
+    Executor executor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    };
+    SettableFuture<Object> future = SettableFuture.create();
+    FuturePromise<Object> derived =
+        FuturePromise.create(future, executor).then(new TestImmediateCallback());
+
+    future.set(null);
+
+    try {
+      derived.get();
+      failBecauseExceptionWasNotThrown(ExecutionException.class);
+    } catch (Throwable t) {
+      assertThat(t).isInstanceOf(ExecutionException.class);
+      assertThat(t.getCause()).isInstanceOf(RejectedExecutionException.class);
+    }
+  }
+
+  @Test
+  public void testAdaptUnwraps() {
+    SettableFuture<Object> future = SettableFuture.create();
+
+    assertThat(FuturePromise.adapt(FuturePromise.create(future))).isSameAs(future);
+    assertThat(FuturePromise.adapt(FuturePromise.create(FuturePromise.create(future))))
+        .isSameAs(future);
+  }
+
+  @Test
+  public void testToFluentFuture() {
+    FluentFuture<Object> future = FluentFuture.from(SettableFuture.create());
+
+    assertThat(FuturePromise.create(future).toFluentFuture()).isSameAs(future);
+  }
+}
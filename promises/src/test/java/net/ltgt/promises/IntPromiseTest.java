@@ -0,0 +1,285 @@
+package net.ltgt.promises;
+
+import static net.ltgt.promises.LongPromiseTest.getNow;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+import net.ltgt.promises.PromiseTestBase.TestDoneCallback;
+
+import org.junit.Test;
+
+public class IntPromiseTest {
+
+  static class TestIntCallback extends IntPromise.DoneCallback {
+    int called;
+    int value;
+    Throwable reason;
+
+    @Override
+    public void onFulfilled(int value) {
+      called++;
+      this.value = value;
+    }
+
+    @Override
+    public void onRejected(Throwable reason) {
+      called++;
+      this.reason = reason;
+    }
+
+    void assertPending() {
+      assertThat(called).isEqualTo(0);
+    }
+
+    void assertFulfilled(int expectedValue) {
+      assertThat(called).isEqualTo(1);
+      assertThat(reason).isNull();
+      assertThat(value).isEqualTo(expectedValue);
+    }
+
+    void assertRejected(Throwable expectedReason) {
+      assertThat(called).isEqualTo(1);
+      assertThat(reason).isSameAs(expectedReason);
+    }
+  }
+
+  private static final IntPromise.ImmediateCallback INCREMENT =
+      new IntPromise.ImmediateCallback() {
+        @Override
+        public int onFulfilled(int value) {
+          return value + 1;
+        }
+      };
+
+  @Test
+  public void testFulfill() {
+    IntPromise promise = IntPromise.create();
+    TestIntCallback callback = new TestIntCallback();
+    promise.done(callback);
+    callback.assertPending();
+
+    promise.fulfill(42);
+    callback.assertFulfilled(42);
+
+    TestIntCallback late = new TestIntCallback();
+    promise.done(late);
+    late.assertFulfilled(42);
+  }
+
+  @Test
+  public void testReject() {
+    Throwable reason = new Throwable();
+    IntPromise promise = IntPromise.create();
+    TestIntCallback callback = new TestIntCallback();
+    promise.done(callback);
+
+    promise.reject(reason);
+    callback.assertRejected(reason);
+
+    TestIntCallback late = new TestIntCallback();
+    promise.done(late);
+    late.assertRejected(reason);
+  }
+
+  @Test
+  public void testAlreadySettled() {
+    IntPromise promise = IntPromise.fulfilled(1);
+    try {
+      promise.fulfill(2);
+      fail();
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    try {
+      promise.reject(new Throwable());
+      fail();
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    assertThat(promise.cancel()).isFalse();
+  }
+
+  @Test
+  public void testCancel() {
+    IntPromise promise = IntPromise.create();
+    TestIntCallback callback = new TestIntCallback();
+    promise.done(callback);
+
+    assertThat(promise.cancel()).isTrue();
+    assertThat(callback.reason).isInstanceOf(CancellationException.class);
+
+    // no-op
+    promise.fulfill(1);
+    assertThat(callback.called).isEqualTo(1);
+  }
+
+  @Test
+  public void testThen() {
+    IntPromise promise = IntPromise.create();
+    TestIntCallback callback = new TestIntCallback();
+    promise.then(INCREMENT).then(INCREMENT).done(callback);
+    callback.assertPending();
+
+    promise.fulfill(1);
+    callback.assertFulfilled(3);
+
+    TestIntCallback late = new TestIntCallback();
+    promise.then(INCREMENT).done(late);
+    late.assertFulfilled(2);
+  }
+
+  @Test
+  public void testThenRejected() {
+    final Throwable reason = new Throwable();
+    TestIntCallback rethrown = new TestIntCallback();
+    IntPromise.rejected(reason).then(INCREMENT).done(rethrown);
+    rethrown.assertRejected(reason);
+
+    TestIntCallback recovered = new TestIntCallback();
+    IntPromise.rejected(reason).then(new IntPromise.ImmediateCallback() {
+      @Override
+      public int onFulfilled(int value) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public int onRejected(Throwable r) {
+        assertThat(r).isSameAs(reason);
+        return -1;
+      }
+    }).done(recovered);
+    recovered.assertFulfilled(-1);
+  }
+
+  @Test
+  public void testThenThrows() {
+    final RuntimeException reason = new RuntimeException();
+    IntPromise promise = IntPromise.create();
+    TestIntCallback callback = new TestIntCallback();
+    promise.then(new IntPromise.ImmediateCallback() {
+      @Override
+      public int onFulfilled(int value) {
+        throw reason;
+      }
+    }).done(callback);
+
+    promise.fulfill(1);
+    callback.assertRejected(reason);
+  }
+
+  @Test
+  public void testBoxing() {
+    IntPromise promise = IntPromise.create();
+    TestDoneCallback boxed = new TestDoneCallback();
+    promise.boxed().done(boxed);
+    promise.fulfill(42);
+    boxed.assertFulfilled(42);
+
+    TestIntCallback unboxed = new TestIntCallback();
+    IntPromise.unbox(Promises.fulfilled(42)).done(unboxed);
+    unboxed.assertFulfilled(42);
+
+    TestIntCallback nullValue = new TestIntCallback();
+    IntPromise.unbox(Promises.<Integer>fulfilled(null)).done(nullValue);
+    assertThat(nullValue.reason).isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void testWait() {
+    IntPromise first = IntPromise.create();
+    IntPromise second = IntPromise.fulfilled(2);
+    IntPromise third = IntPromise.create();
+    Promise<int[]> values = IntPromise.wait(Arrays.asList(first, second, third));
+    TestDoneCallback callback = new TestDoneCallback();
+    values.done(callback);
+    callback.assertPending();
+
+    third.fulfill(3);
+    callback.assertPending();
+    first.fulfill(1);
+    assertThat(getNow(values)).isEqualTo(new int[] { 1, 2, 3 });
+  }
+
+  @Test
+  public void testWaitEmpty() {
+    assertThat(getNow(IntPromise.wait(Collections.<IntPromise>emptyList()))).isEmpty();
+  }
+
+  @Test
+  public void testWaitRejected() {
+    Throwable reason = new Throwable();
+    IntPromise first = IntPromise.create();
+    IntPromise second = IntPromise.create();
+    TestDoneCallback callback = new TestDoneCallback();
+    IntPromise.wait(Arrays.asList(first, second)).done(callback);
+
+    second.reject(reason);
+    callback.assertRejected(reason);
+    // no-op
+    first.reject(new Throwable());
+  }
+
+  @Test
+  public void testReductions() {
+    IntPromise first = IntPromise.create();
+    IntPromise second = IntPromise.fulfilled(-5);
+    IntPromise third = IntPromise.create();
+    TestIntCallback sum = new TestIntCallback();
+    TestIntCallback min = new TestIntCallback();
+    TestIntCallback max = new TestIntCallback();
+    IntPromise.sum(Arrays.asList(first, second, third)).done(sum);
+    IntPromise.min(Arrays.asList(first, second, third)).done(min);
+    IntPromise.max(Arrays.asList(first, second, third)).done(max);
+
+    first.fulfill(10);
+    sum.assertPending();
+    third.fulfill(7);
+    sum.assertFulfilled(12);
+    min.assertFulfilled(-5);
+    max.assertFulfilled(10);
+  }
+
+  @Test
+  public void testReductionsEmpty() {
+    TestIntCallback sum = new TestIntCallback();
+    IntPromise.sum(Collections.<IntPromise>emptyList()).done(sum);
+    sum.assertFulfilled(0);
+
+    TestIntCallback min = new TestIntCallback();
+    IntPromise.min(Collections.<IntPromise>emptyList()).done(min);
+    assertThat(min.reason).isInstanceOf(NoSuchElementException.class);
+  }
+
+  @Test
+  public void testSumOverflow() {
+    TestIntCallback sum = new TestIntCallback();
+    IntPromise.sum(Arrays.asList(IntPromise.fulfilled(Integer.MAX_VALUE), IntPromise.fulfilled(1)))
+        .done(sum);
+    assertThat(sum.reason).isInstanceOf(ArithmeticException.class);
+  }
+
+  @Test
+  public void testSumIntermediateOverflow() {
+    IntPromise first = IntPromise.create();
+    IntPromise second = IntPromise.create();
+    IntPromise third = IntPromise.create();
+    TestIntCallback sum = new TestIntCallback();
+    IntPromise.sum(Arrays.asList(first, second, third)).done(sum);
+
+    // Integer.MAX_VALUE + 1 overflows, but the final sum doesn't
+    first.fulfill(Integer.MAX_VALUE);
+    second.fulfill(1);
+    third.fulfill(-1);
+    sum.assertFulfilled(Integer.MAX_VALUE);
+
+    TestIntCallback negative = new TestIntCallback();
+    IntPromise.sum(Arrays.asList(IntPromise.fulfilled(Integer.MIN_VALUE), IntPromise.fulfilled(-1), IntPromise.fulfilled(1)))
+        .done(negative);
+    negative.assertFulfilled(Integer.MIN_VALUE);
+  }
+}
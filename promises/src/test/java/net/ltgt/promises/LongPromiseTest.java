@@ -0,0 +1,298 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+import net.ltgt.promises.PromiseTestBase.TestDoneCallback;
+
+import org.junit.Test;
+
+public class LongPromiseTest {
+
+  static class TestLongCallback extends LongPromise.DoneCallback {
+    int called;
+    long value;
+    Throwable reason;
+
+    @Override
+    public void onFulfilled(long value) {
+      called++;
+      this.value = value;
+    }
+
+    @Override
+    public void onRejected(Throwable reason) {
+      called++;
+      this.reason = reason;
+    }
+
+    void assertPending() {
+      assertThat(called).isEqualTo(0);
+    }
+
+    void assertFulfilled(long expectedValue) {
+      assertThat(called).isEqualTo(1);
+      assertThat(reason).isNull();
+      assertThat(value).isEqualTo(expectedValue);
+    }
+
+    void assertRejected(Throwable expectedReason) {
+      assertThat(called).isEqualTo(1);
+      assertThat(reason).isSameAs(expectedReason);
+    }
+  }
+
+  private static final LongPromise.ImmediateCallback INCREMENT =
+      new LongPromise.ImmediateCallback() {
+        @Override
+        public long onFulfilled(long value) {
+          return value + 1;
+        }
+      };
+
+  @Test
+  public void testFulfill() {
+    LongPromise promise = LongPromise.create();
+    TestLongCallback callback = new TestLongCallback();
+    promise.done(callback);
+    callback.assertPending();
+
+    promise.fulfill(42);
+    callback.assertFulfilled(42);
+
+    TestLongCallback late = new TestLongCallback();
+    promise.done(late);
+    late.assertFulfilled(42);
+  }
+
+  @Test
+  public void testReject() {
+    Throwable reason = new Throwable();
+    LongPromise promise = LongPromise.create();
+    TestLongCallback callback = new TestLongCallback();
+    promise.done(callback);
+
+    promise.reject(reason);
+    callback.assertRejected(reason);
+
+    TestLongCallback late = new TestLongCallback();
+    promise.done(late);
+    late.assertRejected(reason);
+  }
+
+  @Test
+  public void testAlreadySettled() {
+    LongPromise promise = LongPromise.fulfilled(1);
+    try {
+      promise.fulfill(2);
+      fail();
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    try {
+      promise.reject(new Throwable());
+      fail();
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    assertThat(promise.cancel()).isFalse();
+  }
+
+  @Test
+  public void testCancel() {
+    LongPromise promise = LongPromise.create();
+    TestLongCallback callback = new TestLongCallback();
+    promise.done(callback);
+
+    assertThat(promise.cancel()).isTrue();
+    assertThat(callback.reason).isInstanceOf(CancellationException.class);
+
+    // no-op
+    promise.fulfill(1);
+    assertThat(callback.called).isEqualTo(1);
+  }
+
+  @Test
+  public void testThen() {
+    LongPromise promise = LongPromise.create();
+    TestLongCallback callback = new TestLongCallback();
+    promise.then(INCREMENT).then(INCREMENT).done(callback);
+    callback.assertPending();
+
+    promise.fulfill(1);
+    callback.assertFulfilled(3);
+
+    TestLongCallback late = new TestLongCallback();
+    promise.then(INCREMENT).done(late);
+    late.assertFulfilled(2);
+  }
+
+  @Test
+  public void testThenRejected() {
+    final Throwable reason = new Throwable();
+    TestLongCallback rethrown = new TestLongCallback();
+    LongPromise.rejected(reason).then(INCREMENT).done(rethrown);
+    rethrown.assertRejected(reason);
+
+    TestLongCallback recovered = new TestLongCallback();
+    LongPromise.rejected(reason).then(new LongPromise.ImmediateCallback() {
+      @Override
+      public long onFulfilled(long value) {
+        throw new AssertionError();
+      }
+
+      @Override
+      public long onRejected(Throwable r) {
+        assertThat(r).isSameAs(reason);
+        return -1;
+      }
+    }).done(recovered);
+    recovered.assertFulfilled(-1);
+  }
+
+  @Test
+  public void testThenThrows() {
+    final RuntimeException reason = new RuntimeException();
+    LongPromise promise = LongPromise.create();
+    TestLongCallback callback = new TestLongCallback();
+    promise.then(new LongPromise.ImmediateCallback() {
+      @Override
+      public long onFulfilled(long value) {
+        throw reason;
+      }
+    }).done(callback);
+
+    promise.fulfill(1);
+    callback.assertRejected(reason);
+  }
+
+  @Test
+  public void testBoxing() {
+    LongPromise promise = LongPromise.create();
+    TestDoneCallback boxed = new TestDoneCallback();
+    promise.boxed().done(boxed);
+    promise.fulfill(42);
+    boxed.assertFulfilled(42L);
+
+    TestLongCallback unboxed = new TestLongCallback();
+    LongPromise.unbox(Promises.fulfilled(42L)).done(unboxed);
+    unboxed.assertFulfilled(42);
+
+    TestLongCallback nullValue = new TestLongCallback();
+    LongPromise.unbox(Promises.<Long>fulfilled(null)).done(nullValue);
+    assertThat(nullValue.reason).isInstanceOf(NullPointerException.class);
+  }
+
+  /** Returns the value the promise has been fulfilled with. */
+  @SuppressWarnings("unchecked")
+  static <V> V getNow(Promise<V> promise) {
+    final Object[] value = new Object[1];
+    promise.done(new Promise.DoneCallback<V>() {
+      @Override
+      public void onFulfilled(V v) {
+        value[0] = v;
+      }
+    });
+    assertThat(value[0]).as("fulfilled value").isNotNull();
+    return (V) value[0];
+  }
+
+  @Test
+  public void testWait() {
+    LongPromise first = LongPromise.create();
+    LongPromise second = LongPromise.fulfilled(2);
+    LongPromise third = LongPromise.create();
+    Promise<long[]> values = LongPromise.wait(Arrays.asList(first, second, third));
+    TestDoneCallback callback = new TestDoneCallback();
+    values.done(callback);
+    callback.assertPending();
+
+    third.fulfill(3);
+    callback.assertPending();
+    first.fulfill(1);
+    assertThat(getNow(values)).isEqualTo(new long[] { 1, 2, 3 });
+  }
+
+  @Test
+  public void testWaitEmpty() {
+    assertThat(getNow(LongPromise.wait(Collections.<LongPromise>emptyList()))).isEmpty();
+  }
+
+  @Test
+  public void testWaitRejected() {
+    Throwable reason = new Throwable();
+    LongPromise first = LongPromise.create();
+    LongPromise second = LongPromise.create();
+    TestDoneCallback callback = new TestDoneCallback();
+    LongPromise.wait(Arrays.asList(first, second)).done(callback);
+
+    second.reject(reason);
+    callback.assertRejected(reason);
+    // no-op
+    first.reject(new Throwable());
+  }
+
+  @Test
+  public void testReductions() {
+    LongPromise first = LongPromise.create();
+    LongPromise second = LongPromise.fulfilled(-5);
+    LongPromise third = LongPromise.create();
+    TestLongCallback sum = new TestLongCallback();
+    TestLongCallback min = new TestLongCallback();
+    TestLongCallback max = new TestLongCallback();
+    LongPromise.sum(Arrays.asList(first, second, third)).done(sum);
+    LongPromise.min(Arrays.asList(first, second, third)).done(min);
+    LongPromise.max(Arrays.asList(first, second, third)).done(max);
+
+    first.fulfill(10);
+    sum.assertPending();
+    third.fulfill(7);
+    sum.assertFulfilled(12);
+    min.assertFulfilled(-5);
+    max.assertFulfilled(10);
+  }
+
+  @Test
+  public void testReductionsEmpty() {
+    TestLongCallback sum = new TestLongCallback();
+    LongPromise.sum(Collections.<LongPromise>emptyList()).done(sum);
+    sum.assertFulfilled(0);
+
+    TestLongCallback min = new TestLongCallback();
+    LongPromise.min(Collections.<LongPromise>emptyList()).done(min);
+    assertThat(min.reason).isInstanceOf(NoSuchElementException.class);
+  }
+
+  @Test
+  public void testSumOverflow() {
+    TestLongCallback sum = new TestLongCallback();
+    LongPromise.sum(Arrays.asList(LongPromise.fulfilled(Long.MAX_VALUE), LongPromise.fulfilled(1)))
+        .done(sum);
+    assertThat(sum.reason).isInstanceOf(ArithmeticException.class);
+  }
+
+  @Test
+  public void testSumIntermediateOverflow() {
+    LongPromise first = LongPromise.create();
+    LongPromise second = LongPromise.create();
+    LongPromise third = LongPromise.create();
+    TestLongCallback sum = new TestLongCallback();
+    LongPromise.sum(Arrays.asList(first, second, third)).done(sum);
+
+    // Long.MAX_VALUE + 1 overflows, but the final sum doesn't
+    first.fulfill(Long.MAX_VALUE);
+    second.fulfill(1);
+    third.fulfill(-1);
+    sum.assertFulfilled(Long.MAX_VALUE);
+
+    TestLongCallback negative = new TestLongCallback();
+    LongPromise.sum(Arrays.asList(LongPromise.fulfilled(Long.MIN_VALUE), LongPromise.fulfilled(-1), LongPromise.fulfilled(1)))
+        .done(negative);
+    negative.assertFulfilled(Long.MIN_VALUE);
+  }
+}
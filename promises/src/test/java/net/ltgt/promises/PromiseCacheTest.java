@@ -0,0 +1,264 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import net.ltgt.promises.PromiseTestBase.TestDoneCallback;
+
+import org.junit.Test;
+
+public class PromiseCacheTest {
+
+  /** Loader returning pending promises, that the test settles. */
+  static class Loader implements Function<String, Promise<Object>> {
+    final Map<String, FulfillablePromise<Object>> pending = new HashMap<>();
+    int calls;
+
+    @Override
+    public Promise<Object> apply(String key) {
+      calls++;
+      FulfillablePromise<Object> promise = FulfillablePromise.create();
+      pending.put(key, promise);
+      return promise;
+    }
+  }
+
+  static class Ticker implements LongSupplier {
+    final AtomicLong now = new AtomicLong();
+
+    @Override
+    public long getAsLong() {
+      return now.get();
+    }
+  }
+
+  @Test
+  public void testSingleFlight() {
+    Object expected = new Object();
+    PromiseCache<String, Object> cache = PromiseCache.builder().build();
+    Loader loader = new Loader();
+    TestDoneCallback callback1 = new TestDoneCallback();
+    TestDoneCallback callback2 = new TestDoneCallback();
+
+    cache.get("a", loader).done(callback1);
+    cache.get("a", loader).done(callback2);
+    assertThat(loader.calls).isEqualTo(1);
+
+    loader.pending.get("a").fulfill(expected);
+    callback1.assertFulfilled(expected);
+    callback2.assertFulfilled(expected);
+  }
+
+  @Test
+  public void testHitReturnsSameSettledPromise() {
+    Object expected = new Object();
+    PromiseCache<String, Object> cache = PromiseCache.builder().build();
+    Loader loader = new Loader();
+    cache.get("a", loader);
+    loader.pending.get("a").fulfill(expected);
+
+    Promise<Object> hit = cache.get("a", loader);
+    assertThat(cache.get("a", loader)).isSameAs(hit);
+    assertThat(cache.getIfPresent("a")).isSameAs(hit);
+    assertThat(loader.calls).isEqualTo(1);
+
+    // callbacks run synchronously
+    TestDoneCallback callback = new TestDoneCallback();
+    hit.done(callback);
+    callback.assertFulfilled(expected);
+  }
+
+  @Test
+  public void testRejectionIsEvicted() {
+    Throwable expected = new ClassCastException("foo");
+    PromiseCache<String, Object> cache = PromiseCache.builder().build();
+    Loader loader = new Loader();
+    TestDoneCallback callback = new TestDoneCallback();
+    cache.get("a", loader).done(callback);
+
+    loader.pending.get("a").reject(expected);
+    callback.assertRejected(expected);
+    assertThat(cache.size()).isEqualTo(0);
+
+    cache.get("a", loader);
+    assertThat(loader.calls).isEqualTo(2);
+  }
+
+  @Test
+  public void testNegativeCaching() {
+    Throwable expected = new ClassCastException("foo");
+    Ticker ticker = new Ticker();
+    PromiseCache<String, Object> cache = PromiseCache.builder()
+        .cacheRejectionsFor(Duration.ofSeconds(1))
+        .ticker(ticker)
+        .build();
+    Loader loader = new Loader();
+    cache.get("a", loader);
+    loader.pending.get("a").reject(expected);
+
+    TestDoneCallback callback = new TestDoneCallback();
+    cache.get("a", loader).done(callback);
+    callback.assertRejected(expected);
+    assertThat(loader.calls).isEqualTo(1);
+
+    ticker.now.addAndGet(Duration.ofSeconds(1).toNanos());
+    cache.get("a", loader);
+    assertThat(loader.calls).isEqualTo(2);
+  }
+
+  @Test
+  public void testExpireAfterWrite() {
+    Ticker ticker = new Ticker();
+    PromiseCache<String, Object> cache = PromiseCache.builder()
+        .expireAfterWrite(Duration.ofSeconds(1))
+        .ticker(ticker)
+        .build();
+    Loader loader = new Loader();
+    cache.get("a", loader);
+    loader.pending.get("a").fulfill(null);
+
+    ticker.now.addAndGet(Duration.ofMillis(999).toNanos());
+    cache.get("a", loader);
+    assertThat(loader.calls).isEqualTo(1);
+
+    ticker.now.addAndGet(Duration.ofMillis(1).toNanos());
+    assertThat(cache.getIfPresent("a")).isNull();
+    cache.get("a", loader);
+    assertThat(loader.calls).isEqualTo(2);
+  }
+
+  @Test
+  public void testMaximumSizeEvictsLeastRecentlyRead() {
+    PromiseCache<String, Object> cache = PromiseCache.builder().maximumSize(2).build();
+    Loader loader = new Loader();
+    cache.get("a", loader);
+    loader.pending.get("a").fulfill("A");
+    cache.get("b", loader);
+    loader.pending.get("b").fulfill("B");
+
+    // read "a", so "b" is evicted first
+    cache.get("a", loader);
+    cache.get("c", loader);
+    loader.pending.get("c").fulfill("C");
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.getIfPresent("a")).isNotNull();
+    assertThat(cache.getIfPresent("b")).isNull();
+  }
+
+  @Test
+  public void testCancellingAllCallersCancelsLoad() {
+    PromiseCache<String, Object> cache = PromiseCache.builder()
+        .cacheRejectionsFor(Duration.ofSeconds(1))
+        .build();
+    Loader loader = new Loader();
+    Promise<Object> promise1 = cache.get("a", loader);
+    Promise<Object> promise2 = cache.get("a", loader);
+
+    promise1.cancel();
+    assertThat(loader.pending.get("a").isCancelled()).isFalse();
+
+    promise2.cancel();
+    assertThat(loader.pending.get("a").isCancelled()).isTrue();
+    // cancellations are not cached
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testCancelledLoadIsEvictedEvenIfNotHonored() {
+    PromiseCache<String, Object> cache = PromiseCache.builder().build();
+    final FulfillablePromise<Object> backend = FulfillablePromise.create();
+    Function<String, Promise<Object>> loader = new Function<String, Promise<Object>>() {
+      @Override
+      public Promise<Object> apply(String key) {
+        // a promise that ignores cancellation
+        return new ForwardingPromise<Object>() {
+          @Override
+          protected Promise<Object> getDelegate() {
+            return backend;
+          }
+
+          @Override
+          public boolean cancel() {
+            return false;
+          }
+        };
+      }
+    };
+    cache.get("a", loader).cancel();
+    assertThat(cache.size()).isEqualTo(0);
+
+    TestDoneCallback callback = new TestDoneCallback();
+    cache.get("a", loader).done(callback);
+    callback.assertPending();
+    backend.fulfill("A");
+    callback.assertFulfilled("A");
+  }
+
+  @Test
+  public void testExpiredEntriesAreSwept() {
+    Ticker ticker = new Ticker();
+    PromiseCache<String, Object> cache = PromiseCache.builder()
+        .expireAfterWrite(Duration.ofSeconds(1))
+        .ticker(ticker)
+        .build();
+    Loader loader = new Loader();
+    for (int i = 0; i < 100; i++) {
+      String key = Integer.toString(i);
+      cache.get(key, loader);
+      loader.pending.get(key).fulfill(null);
+      ticker.now.addAndGet(Duration.ofMillis(100).toNanos());
+      // live entries, plus those expired since the last sweep (at most one interval ago)
+      assertThat(cache.size()).isLessThanOrEqualTo(21);
+    }
+  }
+
+  @Test
+  public void testCallerJoiningWhileLastOneCancelsGetsNewLoad() throws Exception {
+    final PromiseCache<String, Object> cache = PromiseCache.builder().build();
+    // never settles its promises
+    final Function<String, Promise<Object>> loader = new Function<String, Promise<Object>>() {
+      @Override
+      public Promise<Object> apply(String key) {
+        return FulfillablePromise.create();
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (int i = 0; i < 1000; i++) {
+        final Promise<Object> first = cache.get("a", loader);
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        Future<?> cancelled = executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            barrier.await();
+            first.cancel();
+            return null;
+          }
+        });
+        barrier.await();
+        Promise<Object> second = cache.get("a", loader);
+        cancelled.get();
+
+        TestDoneCallback callback = new TestDoneCallback();
+        second.done(callback);
+        callback.assertPending();
+        second.cancel();
+        assertThat(cache.size()).isEqualTo(0);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
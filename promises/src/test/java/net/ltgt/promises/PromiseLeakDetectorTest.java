@@ -0,0 +1,170 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import net.ltgt.promises.PromiseLeakDetector.Detection;
+import net.ltgt.promises.PromiseTestBase.TestDoneCallback;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PromiseLeakDetectorTest {
+
+  static class Reports implements PromiseLeakDetector.Listener {
+    final List<Throwable> unsettled = new ArrayList<>();
+    final List<Throwable> unobserved = new ArrayList<>();
+
+    @Override
+    public synchronized void onUnsettled(@Nullable Throwable allocation) {
+      unsettled.add(allocation);
+    }
+
+    @Override
+    public synchronized void onUnobservedRejection(Throwable reason,
+        @Nullable Throwable allocation) {
+      unobserved.add(reason);
+    }
+  }
+
+  private Reports reports;
+
+  @Before
+  public void setUp() {
+    collect();
+    reports = new Reports();
+    PromiseLeakDetector.setListener(reports);
+    PromiseLeakDetector.setLevel(Detection.PARANOID);
+  }
+
+  @After
+  public void tearDown() {
+    PromiseLeakDetector.setLevel(Detection.DISABLED);
+    PromiseLeakDetector.setListener(null);
+  }
+
+  /** Garbage collects and reports leaks, a few times as GC is only a hint. */
+  private static void collect() {
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+      PromiseLeakDetector.poll();
+    }
+  }
+
+  @Test
+  public void testUnsettled() {
+    FulfillablePromise.create();
+    collect();
+    assertThat(reports.unsettled).hasSize(1);
+    assertThat(reports.unsettled.get(0)).isNotNull();
+    boolean found = false;
+    for (StackTraceElement frame : reports.unsettled.get(0).getStackTrace()) {
+      found |= frame.getMethodName().equals("testUnsettled");
+    }
+    assertThat(found).isTrue();
+    assertThat(reports.unobserved).isEmpty();
+  }
+
+  @Test
+  public void testUnobservedRejection() {
+    Throwable reason = new Throwable();
+    FulfillablePromise.create().reject(reason);
+    collect();
+    assertThat(reports.unobserved).containsOnly(reason);
+    assertThat(reports.unsettled).isEmpty();
+  }
+
+  @Test
+  public void testObservedRejection() {
+    FulfillablePromise<Object> pending = FulfillablePromise.create();
+    pending.done(new TestDoneCallback());
+    pending.reject(new Throwable());
+    FulfillablePromise<Object> settled = FulfillablePromise.create();
+    settled.reject(new Throwable());
+    settled.done(new TestDoneCallback());
+    pending = settled = null;
+    collect();
+    assertThat(reports.unobserved).isEmpty();
+    assertThat(reports.unsettled).isEmpty();
+  }
+
+  @Test
+  public void testThenRacingWithSettlement() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (int i = 0; i < 1000; i++) {
+        final FulfillablePromise<Object> promise = FulfillablePromise.create();
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        Future<?> fulfilled = executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            barrier.await();
+            promise.fulfill(new Object());
+            return null;
+          }
+        });
+        barrier.await();
+        promise.then(new Promise.ImmediateCallback<Object, Object>() {
+          @Override
+          public Object onFulfilled(Object value) {
+            return value;
+          }
+        }).done(new TestDoneCallback());
+        fulfilled.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    collect();
+    assertThat(reports.unobserved).isEmpty();
+    assertThat(reports.unsettled).isEmpty();
+  }
+
+  @Test
+  public void testFulfilledOrCancelled() {
+    FulfillablePromise.create().fulfill(new Object());
+    FulfillablePromise.create().cancel();
+    collect();
+    assertThat(reports.unobserved).isEmpty();
+    assertThat(reports.unsettled).isEmpty();
+  }
+
+  @Test
+  public void testLostRejectionInChain() {
+    Throwable reason = new Throwable();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    promise.then(new Promise.ImmediateCallback<Object, Object>() {
+      @Override
+      public Object onFulfilled(Object value) {
+        return value;
+      }
+    });
+    promise.reject(reason);
+    promise = null;
+    collect();
+    assertThat(reports.unobserved).containsOnly(reason);
+  }
+
+  @Test
+  public void testDisabled() {
+    PromiseLeakDetector.setLevel(Detection.DISABLED);
+    FulfillablePromise.create();
+    collect();
+    assertThat(reports.unsettled).isEmpty();
+  }
+}
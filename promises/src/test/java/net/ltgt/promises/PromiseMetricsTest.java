@@ -0,0 +1,18 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class PromiseMetricsTest {
+
+  @Test
+  public void testDisabledByDefault() {
+    assertThat(PromiseMetrics.isEnabled()).isFalse();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testInstallWhenDisabled() {
+    PromiseMetrics.install(new StandardPromiseMetrics());
+  }
+}
@@ -0,0 +1,198 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import org.junit.Test;
+
+public class PromisePublisherTest {
+
+  static class TestSubscriber<V> implements Flow.Subscriber<V> {
+    final List<V> values = new ArrayList<>();
+    Flow.Subscription subscription;
+    Throwable error;
+    boolean completed;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      assertThat(this.subscription).isNull();
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(V item) {
+      assertTerminated(false);
+      values.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      assertTerminated(false);
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      assertTerminated(false);
+      completed = true;
+    }
+
+    void assertTerminated(boolean terminated) {
+      assertThat(completed || error != null).as("terminated").isEqualTo(terminated);
+    }
+  }
+
+  @Test
+  public void testCompletionOrder() {
+    FulfillablePromise<String> promise1 = FulfillablePromise.create();
+    FulfillablePromise<String> promise2 = FulfillablePromise.create();
+    FulfillablePromise<String> promise3 = FulfillablePromise.create();
+    TestSubscriber<String> subscriber = new TestSubscriber<>();
+    Promises.publisher(Arrays.asList(promise1, promise2, promise3)).subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    promise3.fulfill("3");
+    assertThat(subscriber.values).containsExactly("3");
+    promise1.fulfill("1");
+    assertThat(subscriber.values).containsExactly("3", "1");
+    subscriber.assertTerminated(false);
+    promise2.fulfill("2");
+    assertThat(subscriber.values).containsExactly("3", "1", "2");
+    assertThat(subscriber.completed).isTrue();
+  }
+
+  @Test
+  public void testInputOrder() {
+    FulfillablePromise<String> promise1 = FulfillablePromise.create();
+    FulfillablePromise<String> promise2 = FulfillablePromise.create();
+    FulfillablePromise<String> promise3 = FulfillablePromise.create();
+    TestSubscriber<String> subscriber = new TestSubscriber<>();
+    Promises.orderedPublisher(Arrays.asList(promise1, promise2, promise3)).subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    promise3.fulfill("3");
+    assertThat(subscriber.values).isEmpty();
+    promise1.fulfill("1");
+    assertThat(subscriber.values).containsExactly("1");
+    promise2.fulfill("2");
+    assertThat(subscriber.values).containsExactly("1", "2", "3");
+    assertThat(subscriber.completed).isTrue();
+  }
+
+  @Test
+  public void testBackpressure() {
+    TestSubscriber<String> subscriber = new TestSubscriber<>();
+    Promises.publisher(Arrays.asList(
+          Promises.fulfilled("1"), Promises.fulfilled("2"), Promises.fulfilled("3")))
+        .subscribe(subscriber);
+    assertThat(subscriber.values).isEmpty();
+
+    subscriber.subscription.request(2);
+    assertThat(subscriber.values).containsExactly("1", "2");
+    subscriber.assertTerminated(false);
+
+    subscriber.subscription.request(1);
+    assertThat(subscriber.values).containsExactly("1", "2", "3");
+    assertThat(subscriber.completed).isTrue();
+  }
+
+  @Test
+  public void testRejection() {
+    Throwable expected = new ClassCastException("foo");
+    FulfillablePromise<String> promise1 = FulfillablePromise.create();
+    FulfillablePromise<String> promise2 = FulfillablePromise.create();
+    TestSubscriber<String> subscriber = new TestSubscriber<>();
+    Promises.publisher(Arrays.asList(promise1, promise2)).subscribe(subscriber);
+    subscriber.subscription.request(1);
+
+    promise2.reject(expected);
+    assertThat(subscriber.error).isSameAs(expected);
+
+    promise1.fulfill("1");
+    assertThat(subscriber.values).isEmpty();
+  }
+
+  @Test
+  public void testCancel() {
+    FulfillablePromise<String> promise1 = FulfillablePromise.create();
+    TestSubscriber<String> subscriber = new TestSubscriber<>();
+    Promises.publisher(Arrays.asList(promise1)).subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+
+    promise1.fulfill("1");
+
+    assertThat(subscriber.values).isEmpty();
+    subscriber.assertTerminated(false);
+  }
+
+  @Test
+  public void testEmpty() {
+    TestSubscriber<Object> subscriber = new TestSubscriber<>();
+    Promises.publisher(new ArrayList<Promise<Object>>()).subscribe(subscriber);
+
+    assertThat(subscriber.completed).isTrue();
+  }
+
+  @Test
+  public void testNonPositiveRequest() {
+    TestSubscriber<Object> subscriber = new TestSubscriber<>();
+    Promises.publisher(Arrays.asList(FulfillablePromise.create())).subscribe(subscriber);
+    subscriber.subscription.request(0);
+
+    assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testSingleSubscriber() {
+    Flow.Publisher<Object> publisher =
+        Promises.publisher(Arrays.asList(FulfillablePromise.create()));
+    publisher.subscribe(new TestSubscriber<>());
+    TestSubscriber<Object> subscriber = new TestSubscriber<>();
+    publisher.subscribe(subscriber);
+
+    assertThat(subscriber.error).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void testConcurrentFulfillments() throws Exception {
+    final int size = 10000;
+    for (int run = 0; run < 10; run++) {
+      final List<FulfillablePromise<Integer>> promises = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        promises.add(FulfillablePromise.<Integer>create());
+      }
+      TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+      Promises.orderedPublisher(promises).subscribe(subscriber);
+      subscriber.subscription.request(Long.MAX_VALUE);
+
+      List<Thread> workers = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final int offset = t;
+        Thread worker = new Thread() {
+          @Override
+          public void run() {
+            for (int i = offset; i < size; i += 4) {
+              promises.get(i).fulfill(i);
+            }
+          }
+        };
+        worker.start();
+        workers.add(worker);
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+
+      assertThat(subscriber.completed).isTrue();
+      assertThat(subscriber.values).hasSize(size);
+      for (int i = 0; i < size; i++) {
+        assertThat(subscriber.values.get(i)).isEqualTo(i);
+      }
+    }
+  }
+}
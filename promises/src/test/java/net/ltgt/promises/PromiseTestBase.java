@@ -2,6 +2,11 @@ package net.ltgt.promises;
 
 import static org.fest.assertions.api.Assertions.*;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
 import javax.annotation.Nullable;
 
 import net.ltgt.promises.Promise.Callback;
@@ -141,6 +146,32 @@ public abstract class PromiseTestBase<P extends Promise<Object>> {
       assertThat(actualValueSet).as("Promise unexpectedly fulfilled").isFalse();
       assertThat(actualReason).as("rejection reason").isNotNull().isSameAs(expectedReason);
     }
+
+    void assertCancelled() {
+      assertThat(actualValueSet).as("Promise unexpectedly fulfilled").isFalse();
+      assertThat(actualReason).as("rejection reason").isInstanceOf(CancellationException.class);
+    }
+  }
+
+  static class QueueExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private int executed;
+
+    @Override
+    public void execute(Runnable command) {
+      executed++;
+      tasks.add(command);
+    }
+
+    int executed() {
+      return executed;
+    }
+
+    void runAll() {
+      for (Runnable task; (task = tasks.poll()) != null; ) {
+        task.run();
+      }
+    }
   }
 
   /** This is a hook for PrefilledPromiseTest. */
@@ -663,4 +694,117 @@ public abstract class PromiseTestBase<P extends Promise<Object>> {
     after1.assertRejected(expected);
     after2.assertRejected(expected);
   }
+
+  @Test
+  public void testOnFulfilledWithExecutor() {
+    Object expected = new Object();
+    QueueExecutor executor = new QueueExecutor();
+    TestDoneCallback callback = new TestDoneCallback();
+    P promise = createFulfilledPromise(expected);
+
+    promise.done(callback, executor);
+    fulfill(promise, expected);
+    callback.assertPending();
+
+    executor.runAll();
+    callback.assertFulfilled(expected);
+  }
+
+  @Test
+  public void testOnRejectedWithExecutor() {
+    Throwable expected = new ClassCastException("foo");
+    QueueExecutor executor = new QueueExecutor();
+    TestDoneCallback callback = new TestDoneCallback();
+    P promise = createRejectedPromise(expected);
+
+    promise.done(callback, executor);
+    reject(promise, expected);
+    callback.assertPending();
+
+    executor.runAll();
+    callback.assertRejected(expected);
+  }
+
+  @Test
+  public void testChainingWithExecutor() {
+    Object expected1 = new Object();
+    Object expected2 = new Object();
+    QueueExecutor executor = new QueueExecutor();
+    P promise1 = createFulfilledPromise(expected1);
+    TestCallback callback1 = new TestCallback(Promises.<Object>fulfilled(expected2));
+    TestDoneCallback callback2 = new TestDoneCallback();
+
+    promise1.then(callback1, executor).done(callback2);
+    fulfill(promise1, expected1);
+    callback1.assertPending();
+    callback2.assertPending();
+
+    executor.runAll();
+    callback1.assertFulfilled(expected1);
+    callback2.assertFulfilled(expected2);
+  }
+
+  @Test
+  public void testChainingWithExecutorReturningNull() {
+    Object expected = new Object();
+    QueueExecutor executor = new QueueExecutor();
+    P promise = createFulfilledPromise(expected);
+    TestCallback callback1 = new TestCallback(null);
+    TestDoneCallback callback2 = new TestDoneCallback();
+
+    promise.then(callback1, executor).done(callback2);
+    fulfill(promise, expected);
+    executor.runAll();
+
+    callback1.assertFulfilled(expected);
+    assertThat(callback2.actualReason).isInstanceOf(NullPointerException.class);
+  }
+
+  @Test
+  public void testChainingImmediateWithExecutor() {
+    Throwable expected1 = new ClassCastException("foo");
+    final Object expected2 = new Object();
+    QueueExecutor executor = new QueueExecutor();
+    P promise1 = createRejectedPromise(expected1);
+    TestImmediateCallback callback1 = new TestImmediateCallback() {
+      @Override
+      protected Object doOnRejected(Throwable reason) throws Throwable {
+        return expected2;
+      }
+    };
+    TestDoneCallback callback2 = new TestDoneCallback();
+
+    promise1.then(callback1, executor).done(callback2);
+    reject(promise1, expected1);
+    callback1.assertPending();
+    callback2.assertPending();
+
+    executor.runAll();
+    callback1.assertRejected(expected1);
+    callback2.assertFulfilled(expected2);
+  }
+
+  @Test
+  public void testExecutorNotReenteredFromItsOwnCallbacks() {
+    Object expected = new Object();
+    final QueueExecutor executor = new QueueExecutor();
+    final TestDoneCallback nested = new TestDoneCallback();
+    final P promise = createFulfilledPromise(expected);
+    fulfill(promise, expected);
+
+    promise.done(new TestDoneCallback() {
+      @Override
+      public void onFulfilled(@Nullable Object value) {
+        super.onFulfilled(value);
+        // Already running on the executor: must run synchronously, without a new task.
+        promise.done(nested, executor);
+        nested.assertFulfilled(value);
+      }
+    }, executor);
+    assertThat(executor.executed()).isEqualTo(1);
+
+    executor.runAll();
+    nested.assertFulfilled(expected);
+    assertThat(executor.executed()).isEqualTo(1);
+  }
 }
@@ -0,0 +1,341 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.ltgt.promises.Promise.DoneCallback;
+import net.ltgt.promises.Promise.ImmediateCallback;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+// Tests borrowed from https://code.google.com/p/dart/source/browse/branches/bleeding_edge/dart/tests/lib/async/futures_test.dart?r=19164
+public class PromisesTest {
+
+  static class TestCallback extends DoneCallback<List<Object>> {
+    @Override
+    public void onFulfilled(List<Object> value) {
+      fail("Promise unexpectedly fulfilled");
+    }
+    @Override
+    public void onRejected(Throwable reason) {
+      fail("Promise unexpectedly rejected");
+    }
+  }
+
+  @Test
+  public void testWaitEmpty() {
+    Promises.wait(new ArrayList<Promise<Object>>()).done(new TestCallback() {
+      @Override
+      public void onFulfilled(List<Object> value) {
+        assertThat(value).isEmpty();
+      }
+    });
+  }
+
+  @Test
+  public void testFulfillAfterWait() {
+    final Object expected = new Object();
+    FulfillablePromise<Object> promise = FulfillablePromise.create();
+    Promises.wait(promise).done(new TestCallback() {
+      @Override
+      public void onFulfilled(List<Object> value) {
+        assertThat(value).hasSize(1);
+        assertThat(value.get(0)).isSameAs(expected);
+      }
+    });
+    promise.fulfill(expected);
+  }
+
+  @Test
+  public void testFulfillBeforeWait() {
+    final Object expected = new Object();
+    Promise<Object> promise = Promises.fulfilled(expected);
+    Promises.wait(promise).done(new TestCallback() {
+      @Override
+      public void onFulfilled(List<Object> value) {
+        assertThat(value).hasSize(1);
+        assertThat(value.get(0)).isSameAs(expected);
+      }
+    });
+  }
+
+  @Test
+  public void testWaitWithMultipleValues() {
+    final Object expected1 = new Object();
+    final Object expected2 = new Object();
+    Promises.wait(
+          Promises.fulfilled(expected1),
+          Promises.fulfilled(expected2)
+        ).done(new TestCallback() {
+          @Override
+          public void onFulfilled(List<Object> value) {
+            assertThat(value).hasSize(2);
+            assertThat(value.get(0)).isSameAs(expected1);
+            assertThat(value.get(1)).isSameAs(expected2);
+          }
+        });
+  }
+
+  @Test
+  public void testWaitWithSingleError() {
+    final Throwable expected = new ClassCastException("foo");
+    Promises.wait(
+          Promises.fulfilled(new Object()),
+          Promises.rejected(expected)
+        ).done(new TestCallback() {
+          @Override
+          public void onRejected(Throwable reason) {
+            assertThat(reason).isSameAs(expected);
+          }
+        });
+  }
+
+  @Test
+  public void testWaitWithMulpleErrors() {
+    final Throwable expected1 = new ClassCastException("foo");
+    Promises.wait(
+          Promises.rejected(expected1),
+          Promises.rejected(new IllegalArgumentException("bar"))
+        ).done(new TestCallback() {
+          @Override
+          public void onRejected(Throwable reason) {
+            assertThat(reason).isSameAs(expected1);
+          }
+        });
+  }
+
+  @Test
+  public void testVirtualThreadExecutor() throws Exception {
+    Executor executor;
+    try {
+      executor = Promises.virtualThreadExecutor();
+    } catch (UnsupportedOperationException uoe) {
+      Assume.assumeNoException(uoe);
+      return;
+    }
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<Thread> thread = new AtomicReference<>();
+    Promises.fulfilled(new Object()).done(new DoneCallback<Object>() {
+      @Override
+      public void onFulfilled(Object value) {
+        thread.set(Thread.currentThread());
+        latch.countDown();
+      }
+    }, executor);
+
+    assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(thread.get()).isNotSameAs(Thread.currentThread());
+    assertThat(thread.get().getName()).startsWith("promises-virtual-");
+  }
+
+  @Test
+  public void testFulfilledCommonValuesAreShared() {
+    assertThat(Promises.fulfilled(null)).isSameAs(Promises.fulfilled(null));
+    assertThat(Promises.fulfilled(true)).isSameAs(Promises.fulfilled(Boolean.TRUE));
+    assertThat(Promises.fulfilled(false)).isSameAs(Promises.fulfilled(Boolean.FALSE));
+    assertThat(Promises.fulfilled(Collections.emptyList()))
+        .isSameAs(Promises.fulfilled(Collections.emptyList()));
+    assertThat(Promises.fulfilled(Collections.emptySet()))
+        .isSameAs(Promises.fulfilled(Collections.emptySet()));
+    assertThat(Promises.fulfilled(Collections.emptyMap()))
+        .isSameAs(Promises.fulfilled(Collections.emptyMap()));
+    assertThat(Promises.fulfilled(-128)).isSameAs(Promises.fulfilled(-128));
+    assertThat(Promises.fulfilled(127)).isSameAs(Promises.fulfilled(127));
+
+    assertThat(Promises.fulfilled(true)).isNotSameAs(Promises.fulfilled(false));
+    assertThat(Promises.fulfilled(0)).isNotSameAs(Promises.fulfilled(1));
+    assertThat(Promises.fulfilled(128)).isNotSameAs(Promises.fulfilled(128));
+    assertThat(Promises.fulfilled(Integer.MIN_VALUE))
+        .isNotSameAs(Promises.fulfilled(Integer.MIN_VALUE));
+    assertThat(Promises.fulfilled(new ArrayList<>()))
+        .isNotSameAs(Promises.fulfilled(new ArrayList<>()));
+  }
+
+  @Test
+  public void testFulfilledCachedIntegerValue() {
+    final Integer expected = 42;
+    Promises.fulfilled(expected).done(new DoneCallback<Integer>() {
+      @Override
+      public void onFulfilled(Integer value) {
+        assertThat(value).isEqualTo(expected);
+      }
+    });
+  }
+
+  @Test
+  public void testThenImmediateReusesSharedPromises() {
+    Promise<Boolean> promise = Promises.fulfilled(new Object())
+        .then(new ImmediateCallback<Object, Boolean>() {
+          @Override
+          public Boolean onFulfilled(Object value) {
+            return true;
+          }
+        });
+    assertThat(promise).isSameAs(Promises.fulfilled(true));
+
+    FulfillablePromise<Object> fulfillable = FulfillablePromise.create();
+    fulfillable.fulfill(new Object());
+    Promise<Object> nullPromise = fulfillable.then(new ImmediateCallback<Object, Object>() {
+      @Override
+      public Object onFulfilled(Object value) {
+        return null;
+      }
+    });
+    assertThat(nullPromise).isSameAs(Promises.fulfilled(null));
+  }
+
+  @Test
+  public void testWaitWithConcurrentFulfillments() throws Exception {
+    final int size = 10000;
+    final int threads = 4;
+    for (int run = 0; run < 20; run++) {
+      final List<FulfillablePromise<Integer>> promises = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        promises.add(FulfillablePromise.<Integer>create());
+      }
+      final AtomicReference<List<Integer>> result = new AtomicReference<>();
+      Promises.wait(promises).done(new DoneCallback<List<Integer>>() {
+        @Override
+        public void onFulfilled(List<Integer> value) {
+          assertThat(result.getAndSet(value)).as("fulfilled more than once").isNull();
+        }
+      });
+
+      List<Thread> workers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final int offset = t;
+        Thread worker = new Thread() {
+          @Override
+          public void run() {
+            for (int i = offset; i < size; i += threads) {
+              promises.get(i).fulfill(i);
+            }
+          }
+        };
+        worker.start();
+        workers.add(worker);
+      }
+      for (Thread worker : workers) {
+        worker.join();
+      }
+
+      List<Integer> values = result.get();
+      assertThat(values).hasSize(size);
+      for (int i = 0; i < size; i++) {
+        assertThat(values.get(i)).isEqualTo(i);
+      }
+    }
+  }
+
+  /**
+   * One input is fulfilled while the other is concurrently rejected: the only acceptable
+   * outcome is a single rejection.
+   */
+  @Test
+  public void testWaitWithConcurrentFulfillmentAndRejection() throws Exception {
+    final Throwable expected = new ClassCastException("foo");
+    final AtomicInteger fulfilled = new AtomicInteger();
+    final AtomicInteger rejected = new AtomicInteger();
+    for (int run = 0; run < 10000; run++) {
+      final FulfillablePromise<Object> promise1 = FulfillablePromise.create();
+      final FulfillablePromise<Object> promise2 = FulfillablePromise.create();
+      Promises.wait(promise1, promise2).done(new DoneCallback<List<Object>>() {
+        @Override
+        public void onFulfilled(List<Object> value) {
+          fulfilled.incrementAndGet();
+        }
+
+        @Override
+        public void onRejected(Throwable reason) {
+          assertThat(reason).isSameAs(expected);
+          rejected.incrementAndGet();
+        }
+      });
+      Thread actor = new Thread() {
+        @Override
+        public void run() {
+          promise2.reject(expected);
+        }
+      };
+      actor.start();
+      promise1.fulfill(new Object());
+      actor.join();
+    }
+    assertThat(fulfilled.get()).isZero();
+    assertThat(rejected.get()).isEqualTo(10000);
+  }
+
+  @Test
+  public void testWaitReleasesStateOnRejection() throws Exception {
+    FulfillablePromise<Object> straggler = FulfillablePromise.create();
+    FulfillablePromise<Object> failing = FulfillablePromise.create();
+    Promise<List<Object>> result = Promises.wait(straggler, failing);
+    TestCallback callback = new TestCallback() {
+      @Override
+      public void onRejected(Throwable reason) {
+        // expected
+      }
+    };
+    result.done(callback);
+    WeakReference<Promise<List<Object>>> resultRef = new WeakReference<>(result);
+    WeakReference<TestCallback> callbackRef = new WeakReference<>(callback);
+    result = null;
+    callback = null;
+
+    failing.reject(new ClassCastException("foo"));
+
+    for (int i = 0; i < 20 && (resultRef.get() != null || callbackRef.get() != null); i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertThat(resultRef.get()).as("result promise retained by pending input").isNull();
+    assertThat(callbackRef.get()).as("callback retained by pending input").isNull();
+
+    // settling the straggler afterwards is harmless
+    straggler.fulfill(new Object());
+  }
+
+  @Test
+  public void testWaitStopsRegisteringOnceRejected() {
+    final Throwable expected = new ClassCastException("foo");
+    final AtomicInteger registrations = new AtomicInteger();
+    Promise<Object> counting = new ForwardingPromise<Object>() {
+      private final FulfillablePromise<Object> delegate = FulfillablePromise.create();
+
+      @Override
+      protected Promise<Object> getDelegate() {
+        return delegate;
+      }
+
+      @Override
+      public void done(DoneCallback<? super Object> callback) {
+        registrations.incrementAndGet();
+        super.done(callback);
+      }
+    };
+    Promises.wait(Promises.rejected(expected), counting).done(new TestCallback() {
+      @Override
+      public void onRejected(Throwable reason) {
+        assertThat(reason).isSameAs(expected);
+      }
+    });
+
+    assertThat(registrations.get()).isZero();
+  }
+
+  @Test
+  public void testSettledPromisesCannotBeCancelled() {
+    assertThat(Promises.fulfilled(new Object()).cancel()).isFalse();
+    assertThat(Promises.rejected(new ClassCastException("foo")).cancel()).isFalse();
+  }
+}
@@ -0,0 +1,109 @@
+package net.ltgt.promises;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import net.ltgt.promises.PromiseMetrics.Source;
+import net.ltgt.promises.PromiseTestBase.TestDoneCallback;
+import net.ltgt.promises.StandardPromiseMetrics.Histogram;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+public class StandardPromiseMetricsTest {
+
+  private StandardPromiseMetrics metrics;
+
+  @Before
+  public void setUp() {
+    assertThat(PromiseMetrics.isEnabled()).isTrue();
+    metrics = new StandardPromiseMetrics();
+    PromiseMetrics.install(metrics);
+  }
+
+  @After
+  public void tearDown() {
+    PromiseMetrics.install(null);
+  }
+
+  @Test
+  public void testFulfillablePromise() {
+    FulfillablePromise<Object> fulfilled = FulfillablePromise.create();
+    FulfillablePromise<Object> rejected = FulfillablePromise.create();
+    assertThat(metrics.getCreated(Source.FULFILLABLE)).isEqualTo(2);
+    assertThat(metrics.getOutstanding()).isEqualTo(2);
+
+    fulfilled.done(new TestDoneCallback());
+    fulfilled.done(new TestDoneCallback());
+    fulfilled.fulfill(new Object());
+    rejected.reject(new IllegalStateException());
+
+    assertThat(metrics.getSettled(Source.FULFILLABLE)).isEqualTo(2);
+    assertThat(metrics.getRejected(Source.FULFILLABLE)).isEqualTo(1);
+    assertThat(metrics.getOutstanding()).isEqualTo(0);
+    assertThat(metrics.getRejectionsByType().get(IllegalStateException.class)).isEqualTo(1L);
+    assertThat(metrics.getPendingNanos().getCount()).isEqualTo(2);
+    assertThat(metrics.getHandlers().getValueAtPercentile(0)).isEqualTo(0);
+    assertThat(metrics.getHandlers().getValueAtPercentile(100)).isEqualTo(2);
+  }
+
+  @Test
+  public void testFulfillablePromiseConstructor() {
+    FulfillablePromise<Object> promise = new FulfillablePromise<>();
+    assertThat(metrics.getCreated(Source.FULFILLABLE)).isEqualTo(1);
+    assertThat(metrics.getOutstanding()).isEqualTo(1);
+
+    promise.fulfill(new Object());
+    assertThat(metrics.getSettled(Source.FULFILLABLE)).isEqualTo(1);
+    assertThat(metrics.getOutstanding()).isEqualTo(0);
+  }
+
+  @Test
+  public void testFuturePromise() {
+    SettableFuture<Object> future = SettableFuture.create();
+    FuturePromise.create(future);
+    assertThat(metrics.getCreated(Source.FUTURE)).isEqualTo(1);
+
+    future.setException(new IllegalArgumentException());
+    assertThat(metrics.getSettled(Source.FUTURE)).isEqualTo(1);
+    assertThat(metrics.getRejected(Source.FUTURE)).isEqualTo(1);
+    assertThat(metrics.getRejectionsByType().get(IllegalArgumentException.class)).isEqualTo(1L);
+  }
+
+  @Test
+  public void testWait() {
+    Promises.wait(Arrays.asList(Promises.fulfilled(1), Promises.fulfilled(2)));
+    assertThat(metrics.getWaitSizes().getCount()).isEqualTo(1);
+    assertThat(metrics.getWaitSizes().getValueAtPercentile(50)).isEqualTo(2);
+  }
+
+  @Test
+  public void testUninstall() {
+    PromiseMetrics.install(null);
+    FulfillablePromise.create().fulfill(null);
+    assertThat(metrics.getCreated(Source.FULFILLABLE)).isEqualTo(0);
+    assertThat(metrics.getSettled(Source.FULFILLABLE)).isEqualTo(0);
+  }
+
+  @Test
+  public void testHistogramPrecision() {
+    Histogram histogram = new Histogram();
+    for (long value = 0; value < 16; value++) {
+      histogram.record(value);
+      assertThat(histogram.getValueAtPercentile(100)).isEqualTo(value);
+    }
+    for (long value : new long[] { 17, 100, 1000, 123456789L, Long.MAX_VALUE }) {
+      int index = Histogram.index(value);
+      long lowest = Histogram.lowestValue(index);
+      assertThat(lowest).isLessThanOrEqualTo(value);
+      assertThat(value - lowest).isLessThanOrEqualTo(value / 16);
+      assertThat(Histogram.index(lowest)).isEqualTo(index);
+    }
+    assertThat(histogram.getCount()).isEqualTo(16);
+    assertThat(histogram.getValueAtPercentile(50)).isEqualTo(7);
+  }
+}
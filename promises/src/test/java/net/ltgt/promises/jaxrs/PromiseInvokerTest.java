@@ -0,0 +1,149 @@
+package net.ltgt.promises.jaxrs;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.CompletionStageRxInvoker;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.Variant;
+import javax.ws.rs.ext.RuntimeDelegate;
+
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.jaxrs.RequestCoalescerTest.Recorder;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PromiseInvokerTest {
+
+  /**
+   * There's no JAX-RS implementation in the tests, but proxying {@link Invocation.Builder}
+   * initializes classes (e.g. {@link javax.ws.rs.core.CacheControl}) that need one.
+   */
+  @BeforeClass
+  public static void setUpRuntimeDelegate() {
+    RuntimeDelegate.setInstance(new RuntimeDelegate() {
+      @Override
+      public UriBuilder createUriBuilder() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Response.ResponseBuilder createResponseBuilder() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Variant.VariantListBuilder createVariantListBuilder() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public <T> T createEndpoint(Application application, Class<T> endpointType) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public <T> HeaderDelegate<T> createHeaderDelegate(Class<T> type) {
+        return null;
+      }
+
+      @Override
+      public Link.Builder createLinkBuilder() {
+        throw new UnsupportedOperationException();
+      }
+    });
+  }
+
+  /** Records the calls to its {@link CompletionStageRxInvoker}, and returns {@link #stage}. */
+  static class FakeRequest implements InvocationHandler {
+    final CompletableFuture<Object> stage = new CompletableFuture<>();
+    Object[] args;
+
+    Invocation.Builder builder() {
+      return (Invocation.Builder) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] { Invocation.Builder.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+              assertThat(method.getName()).isEqualTo("rx");
+              assertThat(args).isNull();
+              return Proxy.newProxyInstance(getClass().getClassLoader(),
+                  new Class<?>[] { CompletionStageRxInvoker.class }, FakeRequest.this);
+            }
+          });
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      assertThat(method.getName()).isEqualTo("method");
+      this.args = args;
+      return stage;
+    }
+  }
+
+  @Test
+  public void testCachedPerClass() {
+    assertThat(PromiseInvoker.of(String.class)).isSameAs(PromiseInvoker.of(String.class));
+    Object listInvoker = PromiseInvoker.of(new GenericType<List<String>>() {});
+    assertThat(listInvoker).isNotSameAs(PromiseInvoker.of(String.class));
+  }
+
+  @Test
+  public void testClassAndGenericTypeShareInvoker() {
+    assertThat(PromiseInvoker.of(Integer.class))
+        .isSameAs(PromiseInvoker.of(new GenericType<Integer>() {}));
+  }
+
+  @Test
+  public void testGetAdaptsCompletionStage() {
+    FakeRequest request = new FakeRequest();
+    PromiseInvoker<String> invoker = PromiseInvoker.of(String.class);
+    Recorder callback = new Recorder();
+    invoker.get(request.builder()).done(callback);
+
+    assertThat(Arrays.asList(request.args))
+        .containsExactly(HttpMethod.GET, invoker.getResponseType());
+    assertThat(callback.outcome.get()).isNull();
+
+    request.stage.complete("foo");
+    assertThat(callback.outcome.get()).isEqualTo("foo");
+  }
+
+  @Test
+  public void testMethodWithEntityAdaptsCompletionStage() {
+    FakeRequest request = new FakeRequest();
+    Entity<String> entity = Entity.text("bar");
+    PromiseInvoker<List<String>> invoker = PromiseInvoker.of(new GenericType<List<String>>() {});
+    Recorder callback = new Recorder();
+    invoker.method(request.builder(), "PATCH", entity).done(callback);
+
+    assertThat(Arrays.asList(request.args))
+        .containsExactly("PATCH", entity, invoker.getResponseType());
+
+    Throwable reason = new IllegalStateException();
+    request.stage.completeExceptionally(reason);
+    assertThat(callback.outcome.get()).isSameAs(reason);
+  }
+
+  @Test
+  public void testCancelCancelsStage() {
+    FakeRequest request = new FakeRequest();
+    Promise<String> promise = PromiseInvoker.of(String.class).delete(request.builder());
+
+    assertThat(promise.cancel()).isTrue();
+    assertThat(request.stage.isCancelled()).isTrue();
+  }
+}
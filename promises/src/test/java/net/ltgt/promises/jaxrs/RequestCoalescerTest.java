@@ -0,0 +1,183 @@
+package net.ltgt.promises.jaxrs;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import net.ltgt.promises.ForwardingPromise;
+import net.ltgt.promises.FulfillablePromise;
+import net.ltgt.promises.Promise;
+import net.ltgt.promises.Promise.DoneCallback;
+
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+  static class Backend implements Supplier<Promise<Object>> {
+    final AtomicInteger calls = new AtomicInteger();
+    FulfillablePromise<Object> last;
+
+    @Override
+    public Promise<Object> get() {
+      calls.incrementAndGet();
+      return last = FulfillablePromise.create();
+    }
+  }
+
+  static class Recorder extends DoneCallback<Object> {
+    final AtomicReference<Object> outcome = new AtomicReference<>();
+
+    @Override
+    public void onFulfilled(Object value) {
+      outcome.set(value);
+    }
+
+    @Override
+    public void onRejected(Throwable reason) {
+      outcome.set(reason);
+    }
+  }
+
+  @Test
+  public void testCoalescesConcurrentRequests() {
+    Object expected = new Object();
+    RequestCoalescer<String, Object> coalescer = RequestCoalescer.create();
+    Backend backend = new Backend();
+    Recorder recorder1 = new Recorder();
+    Recorder recorder2 = new Recorder();
+
+    coalescer.coalesce("/foo", backend).done(recorder1);
+    coalescer.coalesce("/foo", backend).done(recorder2);
+    assertThat(backend.calls.get()).isEqualTo(1);
+    assertThat(coalescer.size()).isEqualTo(1);
+
+    backend.last.fulfill(expected);
+    assertThat(recorder1.outcome.get()).isSameAs(expected);
+    assertThat(recorder2.outcome.get()).isSameAs(expected);
+    assertThat(coalescer.size()).isEqualTo(0);
+
+    // not cached
+    coalescer.coalesce("/foo", backend);
+    assertThat(backend.calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testDistinctKeys() {
+    RequestCoalescer<String, Object> coalescer = RequestCoalescer.create();
+    Backend backend = new Backend();
+
+    coalescer.coalesce("/foo", backend);
+    coalescer.coalesce("/bar", backend);
+
+    assertThat(backend.calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testCancelsBackendOnceAllRequestsCancelled() {
+    RequestCoalescer<String, Object> coalescer = RequestCoalescer.create();
+    Backend backend = new Backend();
+    Promise<Object> request1 = coalescer.coalesce("/foo", backend);
+    Promise<Object> request2 = coalescer.coalesce("/foo", backend);
+    Recorder recorder = new Recorder();
+    backend.last.done(recorder);
+
+    request1.cancel();
+    assertThat(recorder.outcome.get()).isNull();
+
+    request2.cancel();
+    assertThat(recorder.outcome.get()).isInstanceOf(CancellationException.class);
+    assertThat(coalescer.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBackendThrowing() {
+    final RuntimeException expected = new RuntimeException();
+    RequestCoalescer<String, Object> coalescer = RequestCoalescer.create();
+    Recorder recorder = new Recorder();
+
+    coalescer.coalesce("/foo", new Supplier<Promise<Object>>() {
+      @Override
+      public Promise<Object> get() {
+        throw expected;
+      }
+    }).done(recorder);
+
+    assertThat(recorder.outcome.get()).isSameAs(expected);
+    assertThat(coalescer.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testCancelledCallIsForgottenEvenIfNotHonored() {
+    RequestCoalescer<String, Object> coalescer = RequestCoalescer.create();
+    final AtomicInteger calls = new AtomicInteger();
+    Supplier<Promise<Object>> backend = new Supplier<Promise<Object>>() {
+      @Override
+      public Promise<Object> get() {
+        calls.incrementAndGet();
+        // a promise that ignores cancellation
+        return new ForwardingPromise<Object>() {
+          private final FulfillablePromise<Object> delegate = FulfillablePromise.create();
+
+          @Override
+          protected Promise<Object> getDelegate() {
+            return delegate;
+          }
+
+          @Override
+          public boolean cancel() {
+            return false;
+          }
+        };
+      }
+    };
+
+    coalescer.coalesce("/foo", backend).cancel();
+    assertThat(coalescer.size()).isEqualTo(0);
+
+    Recorder recorder = new Recorder();
+    coalescer.coalesce("/foo", backend).done(recorder);
+    assertThat(calls.get()).isEqualTo(2);
+    assertThat(recorder.outcome.get()).isNull();
+  }
+
+  @Test
+  public void testRequestJoiningWhileLastOneCancelsGetsNewCall() throws Exception {
+    final RequestCoalescer<String, Object> coalescer = RequestCoalescer.create();
+    final Backend backend = new Backend();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (int i = 0; i < 1000; i++) {
+        final Promise<Object> first = coalescer.coalesce("/foo", backend);
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        Future<?> cancelled = executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            barrier.await();
+            first.cancel();
+            return null;
+          }
+        });
+        barrier.await();
+        Promise<Object> second = coalescer.coalesce("/foo", backend);
+        cancelled.get();
+
+        // the backend never settles its calls, so the request must still be pending
+        Recorder recorder = new Recorder();
+        second.done(recorder);
+        assertThat(recorder.outcome.get()).isNull();
+        second.cancel();
+        assertThat(coalescer.size()).isEqualTo(0);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}